@@ -0,0 +1,105 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.Color;
+import chess.Move;
+import chess.PieceType;
+
+//Positions and move sequences shared by the benchmarks. Chess960 games always start from the same seeds and
+//continue with the same seeded random moves, so every run measures the same positions.
+final class Fixtures {
+    static final long[] CHESS960_SEEDS = {1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L};
+    private static final int CHESS960_PLIES = 24;
+
+    //Closed Ruy Lopez, long enough to reach a middlegame with castled kings
+    static final String[] RUY_LOPEZ = {
+        "e2e4", "e7e5", "g1f3", "b8c6", "f1b5", "a7a6", "b5a4", "g8f6", "e1g1", "f8e7", "f1e1", "b7b5",
+        "a4b3", "d7d6", "c2c3", "e8g8", "h2h3", "c6a5", "b3c2", "c7c5", "d2d4", "d8c7"
+    };
+
+    //Fool's mate, the shortest game ending in checkmate
+    static final String[] FOOLS_MATE = {"f2f3", "e7e5", "g2g4", "d8h4"};
+
+    private Fixtures(){
+    }
+
+    //ruyLopez and foolsMate are single games, chess960 holds one game per seed. The moves are played with playMove,
+    //which unlike peformChessMove leaves the mated side to move after a mate, as the search expects.
+    static ChessMatch[] positions(String name){
+        switch(name){
+            case "ruyLopez":
+                return new ChessMatch[] {play(new ChessMatch("N"), RUY_LOPEZ)};
+            case "foolsMate":
+                return new ChessMatch[] {play(new ChessMatch("N"), FOOLS_MATE)};
+            case "chess960":
+                ChessMatch[] matches = new ChessMatch[CHESS960_SEEDS.length];
+                for (int i = 0; i < matches.length; i++) {
+                    matches[i] = play(new ChessMatch("Y", CHESS960_SEEDS[i]), chess960Game(CHESS960_SEEDS[i]));
+                }
+                return matches;
+            default:
+                throw new IllegalArgumentException("Unknown position: " + name);
+        }
+    }
+
+    //Random legal moves from the seeded start position. Promotions are to a queen only, the piece
+    //peformChessMove promotes to, so replay() reaches the same positions as play().
+    static String[] chess960Game(long seed){
+        ChessMatch chessMatch = new ChessMatch("Y", seed);
+        Random random = new Random(seed);
+        int[] legal = new int[256];
+        List<String> moves = new ArrayList<>();
+        while(moves.size() < CHESS960_PLIES){
+            int count = chessMatch.legalMoves(legal);
+            int playable = 0;
+            for (int i = 0; i < count; i++) {
+                PieceType promotion = Move.promotion(legal[i]);
+                if(promotion == null || promotion == PieceType.QUEEN){
+                    legal[playable++] = legal[i];
+                }
+            }
+            if(playable == 0){
+                break;
+            }
+            int move = legal[random.nextInt(playable)];
+            chessMatch.playMove(move);
+            moves.add(Move.toString(move));
+        }
+        return moves.toArray(new String[0]);
+    }
+
+    static ChessMatch play(ChessMatch chessMatch, String[] moves){
+        for (String move : moves) {
+            chessMatch.playMove(Move.fromString(move));
+        }
+        return chessMatch;
+    }
+
+    //Through peformChessMove, as the UI plays a game
+    static ChessMatch replay(ChessMatch chessMatch, String[] moves){
+        for (String move : moves) {
+            ChessPosition source = new ChessPosition(move.charAt(0), move.charAt(1) - '0');
+            ChessPosition target = new ChessPosition(move.charAt(2), move.charAt(3) - '0');
+            chessMatch.peformChessMove(source, target);
+        }
+        return chessMatch;
+    }
+
+    static List<ChessPiece> piecesOf(ChessMatch chessMatch, PieceType type, Color color){
+        List<ChessPiece> list = new ArrayList<>();
+        for (ChessPiece[] row : chessMatch.getPieces()) {
+            for (ChessPiece p : row) {
+                if(p != null && p.getType() == type && p.getColor() == color){
+                    list.add(p);
+                }
+            }
+        }
+        return list;
+    }
+}
@@ -0,0 +1,112 @@
+package benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import chess.ChessMatch;
+import engine.Evaluator;
+import perft.Perft;
+
+//Queries on a fixed position that the UI and the search make over and over: check and mate tests, legal move
+//generation, the piece matrix, FEN export and evaluation. Each call covers every game of the position.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MatchBenchmark {
+    @Param({"ruyLopez", "chess960", "foolsMate"})
+    public String position;
+
+    private ChessMatch[] matches;
+    private int[] moves = new int[256];
+    private Evaluator evaluator = new Evaluator();
+    private Perft perft = new Perft();
+
+    @Setup
+    public void setUp(){
+        matches = Fixtures.positions(position);
+    }
+
+    @Benchmark
+    public int testCheck(){
+        int count = 0;
+        for (ChessMatch chessMatch : matches) {
+            count += chessMatch.testCheck(chessMatch.getSideToMove()) ? 1 : 0;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int testCheckMate(){
+        int count = 0;
+        for (ChessMatch chessMatch : matches) {
+            count += chessMatch.testCheckMate(chessMatch.getSideToMove()) ? 1 : 0;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int legalMoves(){
+        int count = 0;
+        for (ChessMatch chessMatch : matches) {
+            count += chessMatch.legalMoves(moves);
+        }
+        return count;
+    }
+
+    @Benchmark
+    public void getPieces(Blackhole blackhole){
+        for (ChessMatch chessMatch : matches) {
+            blackhole.consume(chessMatch.getPieces());
+        }
+    }
+
+    @Benchmark
+    public void toFen(Blackhole blackhole){
+        for (ChessMatch chessMatch : matches) {
+            blackhole.consume(chessMatch.toFen());
+        }
+    }
+
+    @Benchmark
+    public int evaluate(){
+        int sum = 0;
+        for (ChessMatch chessMatch : matches) {
+            sum += evaluator.evaluate(chessMatch);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int evaluateFromScratch(){
+        int sum = 0;
+        for (ChessMatch chessMatch : matches) {
+            sum += evaluator.evaluateFromScratch(chessMatch);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long perft3(){
+        long nodes = 0;
+        for (ChessMatch chessMatch : matches) {
+            nodes += perft.count(chessMatch, 3);
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,60 @@
+package benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import chess.ChessMatch;
+
+//Whole games played through peformChessMove the way the UI plays them, legality checks and check/mate
+//detection after every move included, and setting a match up from a FEN
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MatchFlowBenchmark {
+    private static final byte[] KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1".getBytes(StandardCharsets.US_ASCII);
+
+    private String[][] chess960Games = new String[Fixtures.CHESS960_SEEDS.length][];
+    private ChessMatch loaded = new ChessMatch("N");
+
+    @Setup
+    public void setUp(){
+        for (int i = 0; i < chess960Games.length; i++) {
+            chess960Games[i] = Fixtures.chess960Game(Fixtures.CHESS960_SEEDS[i]);
+        }
+    }
+
+    @Benchmark
+    public int peformChessMoveRuyLopez(){
+        return Fixtures.replay(new ChessMatch("N"), Fixtures.RUY_LOPEZ).getTurn();
+    }
+
+    @Benchmark
+    public int peformChessMoveChess960(){
+        int turns = 0;
+        for (int i = 0; i < chess960Games.length; i++) {
+            turns += Fixtures.replay(new ChessMatch("Y", Fixtures.CHESS960_SEEDS[i]), chess960Games[i]).getTurn();
+        }
+        return turns;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int loadFen(){
+        loaded.loadFen(KIWIPETE, 0, KIWIPETE.length);
+        return loaded.getTurn();
+    }
+}
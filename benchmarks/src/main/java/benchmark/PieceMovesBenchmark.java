@@ -0,0 +1,64 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.PieceType;
+
+//Piece.possibleMoves() and possibleMovesMask() for every piece of one type on the side to move, per position
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PieceMovesBenchmark {
+    @Param({"PAWN", "KNIGHT", "BISHOP", "ROOK", "QUEEN", "KING"})
+    public PieceType type;
+
+    @Param({"ruyLopez", "chess960"})
+    public String position;
+
+    private ChessPiece[] pieces;
+
+    @Setup
+    public void setUp(){
+        List<ChessPiece> list = new ArrayList<>();
+        for (ChessMatch chessMatch : Fixtures.positions(position)) {
+            list.addAll(Fixtures.piecesOf(chessMatch, type, chessMatch.getSideToMove()));
+        }
+        pieces = list.toArray(new ChessPiece[0]);
+    }
+
+    @Benchmark
+    public void possibleMoves(Blackhole blackhole){
+        for (ChessPiece piece : pieces) {
+            blackhole.consume(piece.possibleMoves());
+        }
+    }
+
+    @Benchmark
+    public long possibleMovesMask(){
+        long sum = 0;
+        for (ChessPiece piece : pieces) {
+            sum += piece.possibleMovesMask();
+        }
+        return sum;
+    }
+}
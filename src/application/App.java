@@ -9,8 +9,16 @@ import chess.ChessException;
 import chess.ChessMatch;
 import chess.ChessPiece;
 import chess.ChessPosition;
+import chess.Color;
+import chess.Move;
+import chess.PieceType;
+import engine.Engine;
+import engine.SearchLimits;
+import engine.SearchResult;
 
 public class App {
+    private static final long ENGINE_TIME_MILLIS = 3000;
+
     public static void main(String[] args) throws Exception {
         Scanner sc = new Scanner(System.in);
         List<ChessPiece> captured = new ArrayList<>();
@@ -24,11 +32,36 @@ public class App {
         }
         ChessMatch chessMatch = new ChessMatch(mode);
 
-        while (!chessMatch.getCheckmate()) {
+        System.out.print("Would you like to play against the computer? (Y/N): ");
+        String opponent = sc.nextLine().toUpperCase();
+        while(!opponent.equals("Y") && !opponent.equals("N")){
+            System.out.print("Invalid value! Would you like to play against the computer? (Y/N): ");
+            opponent = sc.nextLine().toUpperCase();
+        }
+        Engine engine = opponent.equals("Y") ? new Engine(64) : null;
+
+        while (!chessMatch.getGameOver()) {
             try {
                 UI.clearScreen();
                 UI.printMatch(chessMatch,captured);
                 System.out.println();
+
+                //The computer plays black
+                if(engine != null && chessMatch.getCurrentPlayer() == Color.BLACK){
+                    System.out.println("Computer is thinking...");
+                    SearchResult result = engine.bestMove(chessMatch, SearchLimits.time(ENGINE_TIME_MILLIS));
+                    int move = result.getBestMove();
+                    ChessPiece capturedPiece = chessMatch.peformChessMove(ChessPosition.fromSquare(Move.from(move)), ChessPosition.fromSquare(Move.to(move)));
+                    if(capturedPiece != null){
+                        captured.add(capturedPiece);
+                    }
+                    PieceType promotion = Move.promotion(move);
+                    if(chessMatch.getPromoted() != null && promotion != null){
+                        chessMatch.replacePromotedPiece(String.valueOf("PNBRQK".charAt(promotion.ordinal())));
+                    }
+                    continue;
+                }
+
                 System.out.print("Source: ");
                 ChessPosition source = UI.readChessPosition(sc);
     
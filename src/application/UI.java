@@ -60,7 +60,13 @@ public class UI {
         printCapturedPieces(captured);
         System.out.println();
         System.out.println("Turn: " + chessMatch.getTurn());
-        if(!chessMatch.getCheckmate()){
+        if(chessMatch.getStalemate()){
+            System.out.println("STALEMATE");
+        }else if(chessMatch.getThreefoldRepetition()){
+            System.out.println("DRAW BY THREEFOLD REPETITION");
+        }else if(chessMatch.getFiftyMoveRule()){
+            System.out.println("DRAW BY THE FIFTY-MOVE RULE");
+        }else if(!chessMatch.getCheckmate()){
             System.out.println("Waiting player: "+ chessMatch.getCurrentPlayer());
             if(chessMatch.getCheck()){
                 System.out.println("CHECK!");
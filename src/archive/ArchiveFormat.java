@@ -0,0 +1,49 @@
+package archive;
+
+import pgn.PgnReader;
+
+//Layout of a game archive, all numbers big-endian:
+//  header  magic "CARC", version, end (u64): the offset just past the committed footer
+//  games   per game: plies (u16), result (u8), FEN length (u8, 0 for the standard start position), FEN bytes,
+//          then one u16 per ply holding the packed Move (from, to, promotion type - it already fits in 15 bits)
+//  index   file offset (u64) of every game, in order
+//  footer  index offset (u64), game count (u64), magic
+//The writer appends in place: new games go after the committed footer, then a new index and footer, and only
+//once those are on disk does the end in the header move to the new footer. Until then readers see the old
+//footer, and whatever lies past the end is left over from an append that never committed. Every append leaves
+//the index and footer it replaced behind as unused bytes among the games.
+final class ArchiveFormat {
+    static final int MAGIC = 0x43415243;
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 16;
+    static final int END_OFFSET = 8;
+    static final int FOOTER_SIZE = 20;
+    static final int GAME_HEADER_SIZE = 4;
+    static final int MAX_PLIES = 0xFFFF;
+    static final int MAX_FEN_LENGTH = 0xFF;
+    static final int MAX_GAME_SIZE = GAME_HEADER_SIZE + MAX_FEN_LENGTH + MAX_PLIES * 2;
+
+    static final int RESULT_NONE = 0;
+    static final int RESULT_WHITE_WINS = 1;
+    static final int RESULT_BLACK_WINS = 2;
+    static final int RESULT_DRAW = 3;
+    static final int RESULT_UNKNOWN = 4;
+
+    private static final String[] RESULTS = {null, PgnReader.WHITE_WINS, PgnReader.BLACK_WINS, PgnReader.DRAW, PgnReader.UNKNOWN};
+
+    private ArchiveFormat(){
+    }
+
+    static int encodeResult(String result){
+        for (int i = 1; i < RESULTS.length; i++) {
+            if(RESULTS[i].equals(result)){
+                return i;
+            }
+        }
+        return RESULT_NONE;
+    }
+
+    static String decodeResult(int code){
+        return (code < RESULTS.length) ? RESULTS[code] : null;
+    }
+}
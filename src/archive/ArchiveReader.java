@@ -0,0 +1,187 @@
+package archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import chess.ChessMatch;
+
+//Random access to the games of an archive written by ArchiveWriter. The file is mapped read-only in 1GB
+//segments that overlap by the largest possible game, so every game and index entry lies inside one segment.
+//Segments are mapped on first use. select() makes a game current; its moves are read straight from the mapping.
+public class ArchiveReader implements Closeable {
+    private static final long SEGMENT = 1L << 30;
+    private static final byte[] START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1".getBytes(StandardCharsets.US_ASCII);
+
+    private FileChannel channel;
+    private long size;
+    private MappedByteBuffer[] segments;
+    private long indexOffset;
+    private long gameCount;
+
+    private MappedByteBuffer game;
+    private int gameStart;
+    private int moveCount;
+    private int result;
+    private int fenLength;
+    private byte[] fen = new byte[ArchiveFormat.MAX_FEN_LENGTH];
+
+    public ArchiveReader(Path path) throws IOException{
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try{
+            size = channel.size();
+            if(size < ArchiveFormat.HEADER_SIZE + ArchiveFormat.FOOTER_SIZE){
+                throw new IOException("Not a game archive: " + path);
+            }
+            segments = new MappedByteBuffer[(int)((size - 1) / SEGMENT) + 1];
+            MappedByteBuffer first = segment(0);
+            if(first.getInt(0) != ArchiveFormat.MAGIC){
+                throw new IOException("Not a game archive: " + path);
+            }
+            if(first.getInt(4) != ArchiveFormat.VERSION){
+                throw new IOException("Unsupported archive version " + first.getInt(4) + ": " + path);
+            }
+            //Anything past the end in the header belongs to an append that has not committed
+            long end = first.getLong(ArchiveFormat.END_OFFSET);
+            if(end < ArchiveFormat.HEADER_SIZE + ArchiveFormat.FOOTER_SIZE || end > size){
+                throw new IOException("Not a game archive or damaged: " + path);
+            }
+            MappedByteBuffer last = segment(end - ArchiveFormat.FOOTER_SIZE);
+            int footer = offsetIn(end - ArchiveFormat.FOOTER_SIZE);
+            indexOffset = last.getLong(footer);
+            gameCount = last.getLong(footer + 8);
+            if(last.getInt(footer + 16) != ArchiveFormat.MAGIC || indexOffset + gameCount * 8 + ArchiveFormat.FOOTER_SIZE != end){
+                throw new IOException("Not a game archive or damaged: " + path);
+            }
+        }catch(IOException | RuntimeException e){
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long getGameCount(){
+        return gameCount;
+    }
+
+    //Makes game number index (from 0) the current game
+    public void select(long index){
+        if(index < 0 || index >= gameCount){
+            throw new IndexOutOfBoundsException("Game " + index + " of " + gameCount);
+        }
+        long entry = indexOffset + index * 8;
+        long offset = segment(entry).getLong(offsetIn(entry));
+        game = segment(offset);
+        gameStart = offsetIn(offset);
+        moveCount = game.getShort(gameStart) & 0xFFFF;
+        result = game.get(gameStart + 2) & 0xFF;
+        fenLength = game.get(gameStart + 3) & 0xFF;
+    }
+
+    public int getMoveCount(){
+        return moveCount;
+    }
+
+    //Packed Move of the given ply of the current game
+    public int getMove(int ply){
+        return game.getShort(gameStart + ArchiveFormat.GAME_HEADER_SIZE + fenLength + ply * 2) & 0xFFFF;
+    }
+
+    //Result of the current game as one of the PgnReader constants, null if none was recorded
+    public String getResult(){
+        return ArchiveFormat.decodeResult(result);
+    }
+
+    //Starting position of the current game, null for the standard start position
+    public String getFen(){
+        if(fenLength == 0){
+            return null;
+        }
+        game.get(gameStart + ArchiveFormat.GAME_HEADER_SIZE, fen, 0, fenLength);
+        return new String(fen, 0, fenLength, StandardCharsets.US_ASCII);
+    }
+
+    //Sets the match up at the start of the current game and plays all of its moves. The archive only ever holds
+    //games that were replayed legally when written, so the moves are played without generating legal moves.
+    public void replay(ChessMatch chessMatch){
+        if(fenLength == 0){
+            chessMatch.loadFen(START_FEN, 0, START_FEN.length);
+        }else{
+            game.get(gameStart + ArchiveFormat.GAME_HEADER_SIZE, fen, 0, fenLength);
+            chessMatch.loadFen(fen, 0, fenLength);
+        }
+        int moves = gameStart + ArchiveFormat.GAME_HEADER_SIZE + fenLength;
+        for (int i = 0; i < moveCount; i++) {
+            chessMatch.playMove(game.getShort(moves + i * 2) & 0xFFFF);
+        }
+    }
+
+    @Override
+    public void close() throws IOException{
+        segments = null;
+        game = null;
+        channel.close();
+    }
+
+    private MappedByteBuffer segment(long offset){
+        int i = (int)(offset / SEGMENT);
+        MappedByteBuffer segment = segments[i];
+        if(segment == null){
+            long start = i * SEGMENT;
+            long length = Math.min(size - start, SEGMENT + ArchiveFormat.MAX_GAME_SIZE);
+            try{
+                segment = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            }catch(IOException e){
+                throw new UncheckedIOException(e);
+            }
+            segments[i] = segment;
+        }
+        return segment;
+    }
+
+    private static int offsetIn(long offset){
+        return (int)(offset % SEGMENT);
+    }
+
+    //Usage: archive.ArchiveReader <archive file> [random <n>]
+    //Replays every game in order, or n games picked at random, and prints the replay speed
+    public static void main(String[] args) throws IOException{
+        if(args.length < 1){
+            System.out.println("Usage: archive.ArchiveReader <archive file> [random <n>]");
+            return;
+        }
+        long random = 0;
+        for (int i = 1; i < args.length; i++) {
+            if(args[i].equals("random")){
+                random = Long.parseLong(args[++i]);
+            }else{
+                throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        ChessMatch chessMatch = ChessMatch.fromFen(new String(START_FEN, StandardCharsets.US_ASCII));
+        Random rnd = new Random(1);
+        long start = System.nanoTime();
+        try(ArchiveReader reader = new ArchiveReader(Path.of(args[0]))){
+            long games = (random > 0) ? random : reader.getGameCount();
+            long moves = 0;
+            for (long i = 0; i < games; i++) {
+                reader.select((random > 0) ? (long)(rnd.nextDouble() * reader.getGameCount()) : i);
+                reader.replay(chessMatch);
+                moves += reader.getMoveCount();
+            }
+            double seconds = Math.max(1L, System.nanoTime() - start) / 1e9;
+            System.out.println("Games: " + games + " of " + reader.getGameCount());
+            System.out.println("Moves: " + moves);
+            System.out.printf("Time: %.3f s%n", seconds);
+            System.out.printf("Games per second: %.0f%n", games / seconds);
+            System.out.printf("Moves per second: %.0f%n", moves / seconds);
+            System.out.printf("Archive size: %.1f MB%n", Files.size(Path.of(args[0])) / (double)(1 << 20));
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import pgn.PgnReader;
+
+//Appends games to an archive (see ArchiveFormat), creating the file if it does not exist. Games are buffered
+//and the index is kept in memory. New games go after the committed footer and close() commits them by writing
+//a new index and footer and then moving the end in the header: until that last write the archive reads as it
+//did before, so a crash never costs the games already in it.
+public class ArchiveWriter implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private Path path;
+    private FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private long position;
+    private long[] offsets = new long[1024];
+    private int gameCount;
+
+    public ArchiveWriter(Path path) throws IOException{
+        this.path = path;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try{
+            if(channel.size() == 0){
+                create();
+            }
+            position = readIndex();
+            //Whatever lies past the end was left by an append that never committed
+            channel.truncate(position);
+            channel.position(position);
+        }catch(IOException | RuntimeException e){
+            channel.close();
+            throw e;
+        }
+    }
+
+    //fen is null for games from the standard start position, result one of the PgnReader constants or null
+    public void add(String fen, int[] moves, int count, String result) throws IOException{
+        byte[] fenBytes = (fen != null) ? fen.getBytes(StandardCharsets.US_ASCII) : null;
+        int fenLength = (fenBytes != null) ? fenBytes.length : 0;
+        if(count > ArchiveFormat.MAX_PLIES){
+            throw new IllegalArgumentException("Too many moves for an archived game: " + count);
+        }
+        if(fenLength > ArchiveFormat.MAX_FEN_LENGTH){
+            throw new IllegalArgumentException("FEN too long for an archived game: " + fen);
+        }
+        //Checked before anything is written, a rejected game leaves no partial record behind
+        for (int i = 0; i < count; i++) {
+            if((moves[i] >>> 16) != 0){
+                throw new IllegalArgumentException("Not a packed move: " + moves[i]);
+            }
+        }
+        int size = ArchiveFormat.GAME_HEADER_SIZE + fenLength + count * 2;
+        if(buffer.remaining() < size){
+            flush();
+        }
+        if(gameCount == offsets.length){
+            offsets = Arrays.copyOf(offsets, gameCount * 2);
+        }
+        offsets[gameCount++] = position;
+
+        buffer.putShort((short)count);
+        buffer.put((byte)ArchiveFormat.encodeResult(result));
+        buffer.put((byte)fenLength);
+        if(fenBytes != null){
+            buffer.put(fenBytes);
+        }
+        for (int i = 0; i < count; i++) {
+            buffer.putShort((short)moves[i]);
+        }
+        position += size;
+    }
+
+    public int getGameCount(){
+        return gameCount;
+    }
+
+    //Writes the index and footer after the new games and commits them, an ArchiveReader opened after that sees them
+    @Override
+    public void close() throws IOException{
+        try{
+            long indexOffset = position;
+            for (int i = 0; i < gameCount; i++) {
+                if(buffer.remaining() < 8){
+                    flush();
+                }
+                buffer.putLong(offsets[i]);
+            }
+            if(buffer.remaining() < ArchiveFormat.FOOTER_SIZE){
+                flush();
+            }
+            buffer.putLong(indexOffset);
+            buffer.putLong(gameCount);
+            buffer.putInt(ArchiveFormat.MAGIC);
+            flush();
+            //The new footer has to be on disk before the header points at it
+            channel.force(true);
+            commit(indexOffset + gameCount * 8L + ArchiveFormat.FOOTER_SIZE);
+        }finally{
+            channel.close();
+        }
+    }
+
+    private void flush() throws IOException{
+        buffer.flip();
+        while(buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    //Starts a new file as an empty archive, so appending to it works like appending to any other
+    private void create() throws IOException{
+        buffer.putInt(ArchiveFormat.MAGIC);
+        buffer.putInt(ArchiveFormat.VERSION);
+        buffer.putLong(ArchiveFormat.HEADER_SIZE + ArchiveFormat.FOOTER_SIZE);
+        buffer.putLong(ArchiveFormat.HEADER_SIZE);
+        buffer.putLong(0L);
+        buffer.putInt(ArchiveFormat.MAGIC);
+        flush();
+        channel.force(true);
+    }
+
+    //Moves the end in the header, the single write that makes the new index and footer the committed ones
+    private void commit(long end) throws IOException{
+        ByteBuffer header = ByteBuffer.allocate(8).putLong(0, end);
+        while(header.hasRemaining()){
+            channel.write(header, ArchiveFormat.END_OFFSET + header.position());
+        }
+        channel.force(true);
+    }
+
+    //Loads the index of the committed archive and returns its end, where new games go
+    private long readIndex() throws IOException{
+        long size = channel.size();
+        if(size < ArchiveFormat.HEADER_SIZE + ArchiveFormat.FOOTER_SIZE){
+            throw new IOException("Not a game archive: " + path);
+        }
+        ByteBuffer header = ByteBuffer.allocate(ArchiveFormat.HEADER_SIZE);
+        readFully(channel, header, 0);
+        if(header.getInt(0) != ArchiveFormat.MAGIC){
+            throw new IOException("Not a game archive: " + path);
+        }
+        if(header.getInt(4) != ArchiveFormat.VERSION){
+            throw new IOException("Unsupported archive version " + header.getInt(4) + ": " + path);
+        }
+        long end = header.getLong(ArchiveFormat.END_OFFSET);
+        if(end < ArchiveFormat.HEADER_SIZE + ArchiveFormat.FOOTER_SIZE || end > size){
+            throw new IOException("Not a game archive or damaged: " + path);
+        }
+        ByteBuffer footer = ByteBuffer.allocate(ArchiveFormat.FOOTER_SIZE);
+        readFully(channel, footer, end - ArchiveFormat.FOOTER_SIZE);
+        long indexOffset = footer.getLong(0);
+        long count = footer.getLong(8);
+        if(footer.getInt(16) != ArchiveFormat.MAGIC || indexOffset + count * 8 + ArchiveFormat.FOOTER_SIZE != end){
+            throw new IOException("Not a game archive or damaged: " + path);
+        }
+        if(count > Integer.MAX_VALUE - 8){
+            throw new IOException("Too many games to append to: " + path);
+        }
+
+        ByteBuffer index = ByteBuffer.allocate((int)Math.min(count * 8, BUFFER_SIZE));
+        gameCount = (int)count;
+        offsets = new long[Math.max(1024, gameCount)];
+        for (int i = 0; i < gameCount; ) {
+            index.clear();
+            index.limit((int)Math.min(index.capacity(), (gameCount - i) * 8L));
+            readFully(channel, index, indexOffset + i * 8L);
+            while(index.hasRemaining()){
+                offsets[i++] = index.getLong();
+            }
+        }
+        return end;
+    }
+
+    private static void readFully(FileChannel archive, ByteBuffer target, long offset) throws IOException{
+        while(target.hasRemaining()){
+            if(archive.read(target, offset + target.position()) < 0){
+                throw new IOException("Unexpected end of archive");
+            }
+        }
+        target.flip();
+    }
+
+    //Usage: archive.ArchiveWriter <pgn file> <archive file>
+    //Replays every game of the PGN file and appends the valid ones to the archive
+    public static void main(String[] args) throws IOException{
+        if(args.length != 2){
+            System.out.println("Usage: archive.ArchiveWriter <pgn file> <archive file>");
+            return;
+        }
+        Path pgn = Path.of(args[0]);
+        Path archive = Path.of(args[1]);
+        int[] moves = new int[256];
+        long start = System.nanoTime();
+        int written;
+        try(PgnReader reader = new PgnReader(pgn); ArchiveWriter writer = new ArchiveWriter(archive)){
+            int before = writer.getGameCount();
+            while(reader.nextGame()){
+                if(!reader.isValid() || reader.getMoveCount() > ArchiveFormat.MAX_PLIES){
+                    continue;
+                }
+                int count = reader.getMoveCount();
+                if(moves.length < count){
+                    moves = new int[Math.max(count, moves.length * 2)];
+                }
+                for (int i = 0; i < count; i++) {
+                    moves[i] = reader.getMove(i);
+                }
+                writer.add(reader.getTag("FEN"), moves, count, reader.getResult());
+            }
+            written = writer.getGameCount() - before;
+            System.out.println("Games: " + reader.getGames() + " (" + (reader.getGames() - written) + " skipped)");
+        }
+        double seconds = Math.max(1L, System.nanoTime() - start) / 1e9;
+        System.out.printf("Time: %.3f s%n", seconds);
+        System.out.printf("PGN size: %.1f MB%n", Files.size(pgn) / (double)(1 << 20));
+        System.out.printf("Archive size: %.1f MB%n", Files.size(archive) / (double)(1 << 20));
+    }
+}
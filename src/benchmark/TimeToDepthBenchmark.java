@@ -0,0 +1,78 @@
+package benchmark;
+
+import chess.ChessMatch;
+import chess.ChessPosition;
+import engine.Engine;
+import engine.OrderingStatistics;
+import engine.SearchLimits;
+import engine.SearchResult;
+
+//Lazy SMP scaling: wall time to reach a fixed depth on the same positions at 1, 2, 4, 8 and 16 threads
+public class TimeToDepthBenchmark {
+    private static final int[] THREADS = {1, 2, 4, 8, 16};
+    private static final long[] CHESS960_SEEDS = {11L, 12L};
+
+    private static final String[][] OPENINGS = {
+        {},
+        {"e2e4", "e7e5", "g1f3", "b8c6", "f1b5", "a7a6", "b5a4", "g8f6", "e1g1", "f8e7"},
+        {"d2d4", "g8f6", "c2c4", "e7e6", "b1c3", "f8b4", "e2e3", "e8g8", "f1d3", "d7d5"}
+    };
+
+    //Usage: benchmark.TimeToDepthBenchmark [depth <d>] [hash <mb>]
+    public static void main(String[] args){
+        int depth = 7;
+        int hash = 64;
+        for (int i = 0; i < args.length; i++) {
+            if(args[i].equals("depth")){
+                depth = Integer.parseInt(args[++i]);
+            }else if(args[i].equals("hash")){
+                hash = Integer.parseInt(args[++i]);
+            }else{
+                throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        ChessMatch[] positions = new ChessMatch[OPENINGS.length + CHESS960_SEEDS.length];
+        for (int i = 0; i < OPENINGS.length; i++) {
+            positions[i] = replay(new ChessMatch("N"), OPENINGS[i]);
+        }
+        for (int i = 0; i < CHESS960_SEEDS.length; i++) {
+            positions[OPENINGS.length + i] = new ChessMatch("Y", CHESS960_SEEDS[i]);
+        }
+
+        //Untimed pass so the single thread row is not paying for JIT compilation
+        Engine warmup = new Engine(hash);
+        for (ChessMatch position : positions) {
+            warmup.bestMove(position, SearchLimits.depth(Math.max(1, depth - 1)));
+        }
+
+        double baseline = 0;
+        System.out.printf("%8s %12s %14s %10s %12s%n", "threads", "time ms", "nodes", "speedup", "first cut");
+        for (int threads : THREADS) {
+            Engine engine = new Engine(hash, threads);
+            long totalMillis = 0;
+            long totalNodes = 0;
+            OrderingStatistics statistics = new OrderingStatistics();
+            for (ChessMatch position : positions) {
+                engine.newGame();
+                long start = System.nanoTime();
+                SearchResult result = engine.bestMove(position, SearchLimits.depth(depth));
+                totalMillis += (System.nanoTime() - start) / 1_000_000;
+                totalNodes += result.getNodes();
+                statistics.add(engine.getStatistics());
+            }
+            engine.shutdown();
+            if(threads == 1){
+                baseline = totalMillis;
+            }
+            System.out.printf("%8d %12d %14d %9.2fx %11.1f%%%n", threads, totalMillis, totalNodes, baseline / Math.max(1, totalMillis), statistics.getFirstMoveCutoffRate() * 100);
+        }
+    }
+
+    private static ChessMatch replay(ChessMatch chessMatch, String[] moves){
+        for (String move : moves) {
+            chessMatch.peformChessMove(new ChessPosition(move.charAt(0), move.charAt(1) - '0'), new ChessPosition(move.charAt(2), move.charAt(3) - '0'));
+        }
+        return chessMatch;
+    }
+}
@@ -0,0 +1,180 @@
+package book;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.Move;
+import chess.PieceType;
+
+//Opening book in the Polyglot layout: 16-byte big-endian entries of key (u64), move (u16), weight (u16) and
+//learn (u32), sorted by unsigned key and, within a key, by descending weight. Keys are our own Zobrist keys,
+//so the layout is Polyglot's but books are not interchangeable with Polyglot ones.
+//Moves use Polyglot's encoding: to file, to rank, from file, from rank (3 bits each, rank 0 is rank 1), then
+//the promotion type, with castling written as the king taking its own rook.
+//The file is mapped read-only in 1GB segments of whole entries and probed by binary search, so a probe costs
+//about log2(entries) reads of the mapping and allocates nothing.
+public class Book implements Closeable {
+    static final int ENTRY_SIZE = 16;
+    private static final int SEGMENT_SHIFT = 26;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+    private static final PieceType[] TYPES = PieceType.values();
+
+    private FileChannel channel;
+    private MappedByteBuffer[] segments;
+    private long entries;
+
+    public Book(Path path) throws IOException{
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try{
+            long size = channel.size();
+            if(size % ENTRY_SIZE != 0){
+                throw new IOException("Not a book, size is not a multiple of " + ENTRY_SIZE + ": " + path);
+            }
+            entries = size / ENTRY_SIZE;
+            segments = new MappedByteBuffer[(int)((entries + SEGMENT_MASK) >>> SEGMENT_SHIFT)];
+            for (int i = 0; i < segments.length; i++) {
+                long start = (long)i << SEGMENT_SHIFT;
+                long length = Math.min(entries - start, 1L << SEGMENT_SHIFT) * ENTRY_SIZE;
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start * ENTRY_SIZE, length);
+            }
+        }catch(IOException | RuntimeException e){
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long getEntryCount(){
+        return entries;
+    }
+
+    //Book moves of the current position, best weight first, as packed Moves. Returns how many were found, at most
+    //moves.length. The moves are not checked for legality: a key collision can yield moves of another position.
+    public int probe(ChessMatch chessMatch, int[] moves, int[] weights){
+        long key = chessMatch.getZobristKey();
+        long i = find(key);
+        int count = 0;
+        while(i < entries && count < moves.length && key(i) == key){
+            moves[count] = decodeMove(chessMatch, move(i));
+            weights[count] = weight(i);
+            count++;
+            i++;
+        }
+        return count;
+    }
+
+    //Highest weighted book move of the current position, Move.NONE if it is not in the book
+    public int bestMove(ChessMatch chessMatch){
+        long key = chessMatch.getZobristKey();
+        long i = find(key);
+        if(i < entries && key(i) == key){
+            return decodeMove(chessMatch, move(i));
+        }
+        return Move.NONE;
+    }
+
+    @Override
+    public void close() throws IOException{
+        segments = null;
+        channel.close();
+    }
+
+    //First entry whose key is not below key, in unsigned order
+    private long find(long key){
+        long low = 0;
+        long high = entries;
+        while(low < high){
+            long middle = (low + high) >>> 1;
+            if(Long.compareUnsigned(key(middle), key) < 0){
+                low = middle + 1;
+            }else{
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long key(long entry){
+        return segments[(int)(entry >>> SEGMENT_SHIFT)].getLong((int)(entry & SEGMENT_MASK) * ENTRY_SIZE);
+    }
+
+    private int move(long entry){
+        return segments[(int)(entry >>> SEGMENT_SHIFT)].getShort((int)(entry & SEGMENT_MASK) * ENTRY_SIZE + 8) & 0xFFFF;
+    }
+
+    private int weight(long entry){
+        return segments[(int)(entry >>> SEGMENT_SHIFT)].getShort((int)(entry & SEGMENT_MASK) * ENTRY_SIZE + 10) & 0xFFFF;
+    }
+
+    //Polyglot move of a move about to be played in the match
+    static int encodeMove(ChessMatch chessMatch, int move){
+        int from = Move.from(move);
+        int to = Move.to(move);
+        ChessPiece piece = chessMatch.getBoard().pieceAt(from);
+        if(piece != null && piece.getType() == PieceType.KING && Math.abs(to % 8 - from % 8) == 2){
+            to = from - from % 8 + ((to > from) ? from % 8 + 3 : from % 8 - 4);
+        }
+        PieceType promotion = Move.promotion(move);
+        return polyglotSquare(to) | (polyglotSquare(from) << 6) | ((promotion != null) ? promotion.ordinal() << 12 : 0);
+    }
+
+    //Packed Move for a Polyglot move in the current position of the match
+    static int decodeMove(ChessMatch chessMatch, int polyglotMove){
+        int to = polyglotSquare(polyglotMove & 63);
+        int from = polyglotSquare((polyglotMove >>> 6) & 63);
+        int promotion = (polyglotMove >>> 12) & 7;
+        ChessPiece king = chessMatch.getBoard().pieceAt(from);
+        ChessPiece rook = chessMatch.getBoard().pieceAt(to);
+        if(king != null && rook != null && king.getType() == PieceType.KING && rook.getType() == PieceType.ROOK && king.getColor() == rook.getColor()){
+            to = (to > from) ? from + 2 : from - 2;
+        }
+        return (promotion != 0) ? Move.of(from, to, TYPES[promotion]) : Move.of(from, to);
+    }
+
+    //Polyglot counts ranks from rank 1, our squares from rank 8; the mapping is its own inverse
+    private static int polyglotSquare(int square){
+        return square ^ 56;
+    }
+
+    //Usage: book.Book <book file> [fen "<fen>"] [probes <n>]
+    //Lists the book moves of a position (the start position by default) and times probes of it
+    public static void main(String[] args) throws IOException{
+        if(args.length < 1){
+            System.out.println("Usage: book.Book <book file> [fen \"<fen>\"] [probes <n>]");
+            return;
+        }
+        String fen = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+        int probes = 1_000_000;
+        for (int i = 1; i < args.length; i++) {
+            if(args[i].equals("fen")){
+                fen = args[++i];
+            }else if(args[i].equals("probes")){
+                probes = Integer.parseInt(args[++i]);
+            }else{
+                throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        ChessMatch chessMatch = ChessMatch.fromFen(fen);
+        int[] moves = new int[256];
+        int[] weights = new int[256];
+        try(Book book = new Book(Path.of(args[0]))){
+            int count = book.probe(chessMatch, moves, weights);
+            System.out.println("Entries: " + book.getEntryCount());
+            for (int i = 0; i < count; i++) {
+                System.out.println(Move.toString(moves[i]) + " " + weights[i]);
+            }
+            long found = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < probes; i++) {
+                found += book.probe(chessMatch, moves, weights);
+            }
+            long nanos = System.nanoTime() - start;
+            System.out.printf("Probe: %.0f ns (%d moves found)%n", nanos / (double)Math.max(1, probes), found);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package book;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import archive.ArchiveReader;
+import chess.ChessMatch;
+import chess.Color;
+import pgn.PgnReader;
+
+//Builds a Book from game archives. Every position of the first maxPly plies of each decided game is recorded
+//with the move played and the Polyglot score for the side that played it: 2 for a win, 1 for a draw, 0 for a
+//loss. Occurrences are kept in flat arrays, sorted and merged when the book is written; moves that only ever
+//lost (weight 0) and moves played in fewer than minGames games are left out.
+public class BookBuilder {
+    private static final byte[] START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1".getBytes(StandardCharsets.US_ASCII);
+
+    private int maxPly;
+    private int minGames;
+    private ChessMatch chessMatch = ChessMatch.fromFen(new String(START_FEN, StandardCharsets.US_ASCII));
+
+    //Occurrence i is position keys[i] with values[i] = Polyglot move << 2 | score
+    private long[] keys = new long[1 << 16];
+    private int[] values = new int[1 << 16];
+    private int count;
+    private long games;
+
+    public BookBuilder(int maxPly, int minGames){
+        if(maxPly < 1 || minGames < 1){
+            throw new IllegalArgumentException("Plies and minimum games must be positive");
+        }
+        this.maxPly = maxPly;
+        this.minGames = minGames;
+    }
+
+    public void add(ArchiveReader archive){
+        for (long game = 0; game < archive.getGameCount(); game++) {
+            archive.select(game);
+            String result = archive.getResult();
+            int whiteScore;
+            if(PgnReader.WHITE_WINS.equals(result)){
+                whiteScore = 2;
+            }else if(PgnReader.BLACK_WINS.equals(result)){
+                whiteScore = 0;
+            }else if(PgnReader.DRAW.equals(result)){
+                whiteScore = 1;
+            }else{
+                continue;
+            }
+            String fen = archive.getFen();
+            if(fen == null){
+                chessMatch.loadFen(START_FEN, 0, START_FEN.length);
+            }else{
+                chessMatch.loadFen(fen);
+            }
+            int plies = Math.min(maxPly, archive.getMoveCount());
+            for (int ply = 0; ply < plies; ply++) {
+                int move = archive.getMove(ply);
+                int score = (chessMatch.getCurrentPlayer() == Color.WHITE) ? whiteScore : 2 - whiteScore;
+                record(chessMatch.getZobristKey(), Book.encodeMove(chessMatch, move) << 2 | score);
+                chessMatch.playMove(move);
+            }
+            games++;
+        }
+    }
+
+    public long getGames(){
+        return games;
+    }
+
+    //Writes the book and returns the number of entries
+    public long write(Path path) throws IOException{
+        sort(0, count);
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+        long[] entries = new long[256];
+        long written = 0;
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+            int i = 0;
+            while(i < count){
+                //One position: merge the occurrences of each move into weight << 32 | games << 16 | move
+                long key = keys[i];
+                int moves = 0;
+                long maxWeight = 0;
+                while(i < count && keys[i] == key){
+                    int move = values[i] >>> 2;
+                    long weight = 0;
+                    int played = 0;
+                    while(i < count && keys[i] == key && values[i] >>> 2 == move){
+                        weight += values[i] & 3;
+                        played++;
+                        i++;
+                    }
+                    if(weight > 0 && played >= minGames && moves < entries.length){
+                        entries[moves++] = weight << 32 | (long)Math.min(played, 0xFFFF) << 16 | move;
+                        maxWeight = Math.max(maxWeight, weight);
+                    }
+                }
+
+                //Best first, weights scaled down together when the largest one does not fit 16 bits
+                Arrays.sort(entries, 0, moves);
+                for (int m = moves - 1; m >= 0; m--) {
+                    long weight = entries[m] >>> 32;
+                    if(maxWeight > 0xFFFF){
+                        weight = Math.max(1, weight * 0xFFFF / maxWeight);
+                    }
+                    if(buffer.remaining() < Book.ENTRY_SIZE){
+                        flush(channel, buffer);
+                    }
+                    buffer.putLong(key);
+                    buffer.putShort((short)entries[m]);
+                    buffer.putShort((short)weight);
+                    buffer.putInt(0);
+                    written++;
+                }
+            }
+            flush(channel, buffer);
+        }
+        return written;
+    }
+
+    private void record(long key, int value){
+        if(count == keys.length){
+            keys = Arrays.copyOf(keys, count * 2);
+            values = Arrays.copyOf(values, count * 2);
+        }
+        keys[count] = key;
+        values[count] = value;
+        count++;
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException{
+        buffer.flip();
+        while(buffer.hasRemaining()){
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    //Sorts occurrences [from, to) by unsigned key, then move. Three-way quicksort: the start position and the
+    //main lines repeat in almost every game, and runs of equal occurrences are split off in one pass.
+    private void sort(int from, int to){
+        while(to - from > 1){
+            int pivot = from + (to - from) / 2;
+            long pivotKey = keys[pivot];
+            int pivotMove = values[pivot] >>> 2;
+            int less = from;
+            int greater = to;
+            int i = from;
+            while(i < greater){
+                int c = compare(keys[i], values[i] >>> 2, pivotKey, pivotMove);
+                if(c < 0){
+                    swap(i++, less++);
+                }else if(c > 0){
+                    swap(i, --greater);
+                }else{
+                    i++;
+                }
+            }
+            //Recurse into the smaller side and loop on the larger one to bound the stack depth
+            if(less - from < to - greater){
+                sort(from, less);
+                from = greater;
+            }else{
+                sort(greater, to);
+                to = less;
+            }
+        }
+    }
+
+    private static int compare(long key, int move, long otherKey, int otherMove){
+        int c = Long.compareUnsigned(key, otherKey);
+        return (c != 0) ? c : Integer.compare(move, otherMove);
+    }
+
+    private void swap(int i, int j){
+        long key = keys[i];
+        keys[i] = keys[j];
+        keys[j] = key;
+        int value = values[i];
+        values[i] = values[j];
+        values[j] = value;
+    }
+
+    //Usage: book.BookBuilder <book file> <archive file>... [plies <n>] [min <games>]
+    public static void main(String[] args) throws IOException{
+        if(args.length < 2){
+            System.out.println("Usage: book.BookBuilder <book file> <archive file>... [plies <n>] [min <games>]");
+            return;
+        }
+        int plies = 20;
+        int minGames = 1;
+        int archives = 1;
+        while(archives < args.length && !args[archives].equals("plies") && !args[archives].equals("min")){
+            archives++;
+        }
+        for (int i = archives; i < args.length; i++) {
+            if(args[i].equals("plies")){
+                plies = Integer.parseInt(args[++i]);
+            }else if(args[i].equals("min")){
+                minGames = Integer.parseInt(args[++i]);
+            }else{
+                throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        long start = System.nanoTime();
+        BookBuilder builder = new BookBuilder(plies, minGames);
+        for (int i = 1; i < archives; i++) {
+            try(ArchiveReader archive = new ArchiveReader(Path.of(args[i]))){
+                builder.add(archive);
+            }
+        }
+        long entries = builder.write(Path.of(args[0]));
+        double seconds = Math.max(1L, System.nanoTime() - start) / 1e9;
+        System.out.println("Games: " + builder.getGames());
+        System.out.println("Entries: " + entries);
+        System.out.printf("Time: %.3f s%n", seconds);
+        System.out.printf("Book size: %.1f MB%n", Files.size(Path.of(args[0])) / (double)(1 << 20));
+    }
+}
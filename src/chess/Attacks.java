@@ -0,0 +1,224 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+//Precomputed attack sets; sliding pieces use magic bitboards for the row * 8 + column square numbering
+public final class Attacks {
+    private static final int[][] KNIGHT_STEPS = {{-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}, {1, 2}, {2, 1}, {2, -1}, {1, -2}};
+    private static final int[][] KING_STEPS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}, {-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
+    private static final int[][] ROOK_DIRECTIONS = {{-1, 0}, {0, -1}, {0, 1}, {1, 0}};
+    private static final int[][] BISHOP_DIRECTIONS = {{-1, -1}, {-1, 1}, {1, 1}, {1, -1}};
+
+    private static final long[] KNIGHT = new long[64];
+    private static final long[] KING = new long[64];
+    private static final long[][] PAWN = new long[2][64];
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+
+    private static final long[] ROOK_MASKS = new long[64];
+    private static final long[] ROOK_MAGICS = {
+        0x0880004000801022L, 0x4440200440021000L, 0x088008D002200080L, 0x8480041000480080L,
+        0x1080040068008022L, 0x2200010842004410L, 0x1500008409000200L, 0x020000804029040AL,
+        0x4800800040008020L, 0x2082002200410082L, 0x0301001041082000L, 0xC041808008003000L,
+        0x00A4800400800800L, 0x0010800200800400L, 0x0184800100020080L, 0x0040800040802100L,
+        0x4000848004400060L, 0x8684444010002000L, 0x2006820010204200L, 0x0000090021001000L,
+        0x2009010008001004L, 0x900C008004020080L, 0x4108040001100288L, 0x5020220000804114L,
+        0x0080034240002000L, 0x03D0104040002000L, 0x4000100480200480L, 0x0040401200200A00L,
+        0x0008008080040008L, 0x0001000300080400L, 0x4CE1080400421001L, 0x0860804200108124L,
+        0x1000804000800020L, 0x2020100020400040L, 0x4030104202002080L, 0x8048048008801000L,
+        0x40A0040080800802L, 0x0204020080800400L, 0x0500080104000290L, 0xA004012092000044L,
+        0x0002008100420020L, 0x000150002008C000L, 0x090C410020090010L, 0x88422200400A0011L,
+        0x0008002040040400L, 0x0002001004020008L, 0x021600C108020004L, 0x4204410080420004L,
+        0x0040800821004100L, 0x0200842000400480L, 0x0020620140B68200L, 0x80100008E1510100L,
+        0x0080800801040180L, 0x0803000804000300L, 0x0000080162300400L, 0x4002108041040200L,
+        0x8200102040800101L, 0x4602400016210481L, 0x08000A0040102082L, 0x0410210108100005L,
+        0x1011001008000423L, 0x11B1000400020801L, 0x0000012200881004L, 0x000008204401008AL
+    };
+    private static final int[] ROOK_SHIFTS = new int[64];
+    private static final int[] ROOK_OFFSETS = new int[64];
+    private static final long[] ROOK_TABLE;
+
+    private static final long[] BISHOP_MASKS = new long[64];
+    private static final long[] BISHOP_MAGICS = {
+        0x0A4C907009012380L, 0x8020040140410008L, 0x4008160416A03010L, 0x08482140C8000008L,
+        0x1001104080060014L, 0x4001040240080400L, 0x8010880411040000L, 0x0001908228200400L,
+        0x0004600504080C40L, 0x20400208010C1280L, 0x40A0100102202814L, 0x4900044040800003L,
+        0x0143211040010002L, 0x4080008210408180L, 0x00031C2401041002L, 0x2040408410821000L,
+        0x4209481020482082L, 0x1085002004040042L, 0x1029010806440080L, 0x2002021420220000L,
+        0x0041000490400008L, 0x1040210A02100208L, 0x1848430488081840L, 0x20411000618A1020L,
+        0x0444200840C80108L, 0x2010552010010200L, 0x34009000080A4090L, 0x00140800240A0008L,
+        0x5181020004008400L, 0x2480408044100408L, 0x0082021000880100L, 0x0021042001040120L,
+        0x8085442210502000L, 0x11D2482000041900L, 0x4000805000890400L, 0x0200202020080080L,
+        0x000801240108C100L, 0x0C00880081211004L, 0x2A01010A00240211L, 0x262C090200405050L,
+        0x0002092160300809L, 0x0132080404004200L, 0x11000C0044080800L, 0x0410004200840800L,
+        0x0081082104020040L, 0x2002040806000420L, 0x042028050120044CL, 0x0041010222010084L,
+        0x0108412828411400L, 0x0002010401044029L, 0x0009008848084D44L, 0x0000808104091200L,
+        0x1A0100111E120000L, 0x8004900210410003L, 0xA007500401040800L, 0xD030500080809004L,
+        0x000014008210100AL, 0x0000408400880501L, 0x0010001044044400L, 0x00080029A0208800L,
+        0x008C1000C0050102L, 0x0800040604080A04L, 0x0200109001080880L, 0x1808100122082200L
+    };
+    private static final int[] BISHOP_SHIFTS = new int[64];
+    private static final int[] BISHOP_OFFSETS = new int[64];
+    private static final long[] BISHOP_TABLE;
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            KNIGHT[square] = steps(square, KNIGHT_STEPS);
+            KING[square] = steps(square, KING_STEPS);
+            PAWN[Color.WHITE.ordinal()][square] = steps(square, new int[][]{{-1, -1}, {-1, 1}});
+            PAWN[Color.BLACK.ordinal()][square] = steps(square, new int[][]{{1, -1}, {1, 1}});
+        }
+        SplittableRandom random = new SplittableRandom(0x5EEDC4E55L);
+        ROOK_TABLE = initMagics(ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_OFFSETS, random);
+        BISHOP_TABLE = initMagics(BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_OFFSETS, random);
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                long ends = ChessBoard.bit(a) | ChessBoard.bit(b);
+                if(a != b && (rook(a, 0L) & ChessBoard.bit(b)) != 0L){
+                    BETWEEN[a][b] = rook(a, ChessBoard.bit(b)) & rook(b, ChessBoard.bit(a));
+                    LINE[a][b] = (rook(a, 0L) & rook(b, 0L)) | ends;
+                }else if(a != b && (bishop(a, 0L) & ChessBoard.bit(b)) != 0L){
+                    BETWEEN[a][b] = bishop(a, ChessBoard.bit(b)) & bishop(b, ChessBoard.bit(a));
+                    LINE[a][b] = (bishop(a, 0L) & bishop(b, 0L)) | ends;
+                }
+            }
+        }
+    }
+
+    private Attacks(){
+    }
+
+    public static long knight(int square){
+        return KNIGHT[square];
+    }
+
+    public static long king(int square){
+        return KING[square];
+    }
+
+    //Squares attacked by a pawn of the given colour standing on square
+    public static long pawn(Color color, int square){
+        return PAWN[color.ordinal()][square];
+    }
+
+    public static long rook(int square, long occupied){
+        int index = (int)(((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square]);
+        return ROOK_TABLE[ROOK_OFFSETS[square] + index];
+    }
+
+    public static long bishop(int square, long occupied){
+        int index = (int)(((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square]);
+        return BISHOP_TABLE[BISHOP_OFFSETS[square] + index];
+    }
+
+    public static long queen(int square, long occupied){
+        return rook(square, occupied) | bishop(square, occupied);
+    }
+
+    //Squares strictly between two squares on a shared rank, file or diagonal, empty otherwise
+    public static long between(int a, int b){
+        return BETWEEN[a][b];
+    }
+
+    //The whole rank, file or diagonal through both squares, empty if they are not aligned
+    public static long line(int a, int b){
+        return LINE[a][b];
+    }
+
+    private static long steps(int square, int[][] offsets){
+        long mask = 0L;
+        for (int[] offset : offsets) {
+            int row = square / 8 + offset[0];
+            int column = square % 8 + offset[1];
+            if(row >= 0 && row <= 7 && column >= 0 && column <= 7){
+                mask |= ChessBoard.bit(ChessBoard.square(row, column));
+            }
+        }
+        return mask;
+    }
+
+    private static long slidingAttacks(int square, long occupied, int[][] directions){
+        long mask = 0L;
+        for (int[] direction : directions) {
+            int row = square / 8 + direction[0];
+            int column = square % 8 + direction[1];
+            while(row >= 0 && row <= 7 && column >= 0 && column <= 7){
+                long bit = ChessBoard.bit(ChessBoard.square(row, column));
+                mask |= bit;
+                if((occupied & bit) != 0L){
+                    break;
+                }
+                row += direction[0];
+                column += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    //Blockers that matter for a slider: every ray square except the last one before the edge
+    private static long relevantOccupancy(int square, int[][] directions){
+        long mask = 0L;
+        for (int[] direction : directions) {
+            int row = square / 8 + direction[0];
+            int column = square % 8 + direction[1];
+            while(row + direction[0] >= 0 && row + direction[0] <= 7 && column + direction[1] >= 0 && column + direction[1] <= 7){
+                mask |= ChessBoard.bit(ChessBoard.square(row, column));
+                row += direction[0];
+                column += direction[1];
+            }
+        }
+        return mask;
+    }
+
+    private static long[] initMagics(int[][] directions, long[] masks, long[] magics, int[] shifts, int[] offsets, SplittableRandom random){
+        int size = 0;
+        for (int square = 0; square < 64; square++) {
+            masks[square] = relevantOccupancy(square, directions);
+            offsets[square] = size;
+            size += 1 << Long.bitCount(masks[square]);
+        }
+        long[] table = new long[size];
+        for (int square = 0; square < 64; square++) {
+            long mask = masks[square];
+            int bits = Long.bitCount(mask);
+            int entries = 1 << bits;
+            long[] occupancies = new long[entries];
+            long[] attacks = new long[entries];
+            long subset = 0L;
+            for (int i = 0; i < entries; i++) {
+                occupancies[i] = subset;
+                attacks[i] = slidingAttacks(square, subset, directions);
+                subset = (subset - mask) & mask;
+            }
+            shifts[square] = 64 - bits;
+            int[] epoch = new int[entries];
+            int attempt = 0;
+            //The precomputed magic is tried first, a new one is only searched for if it does not fit
+            long magic = magics[square];
+            while(true){
+                attempt++;
+                if(attempt > 1){
+                    magic = random.nextLong() & random.nextLong() & random.nextLong();
+                    if(Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6){
+                        continue;
+                    }
+                }
+                boolean collision = false;
+                for (int i = 0; i < entries && !collision; i++) {
+                    int index = (int)((occupancies[i] * magic) >>> shifts[square]);
+                    if(epoch[index] != attempt){
+                        epoch[index] = attempt;
+                        table[offsets[square] + index] = attacks[i];
+                    }else if(table[offsets[square] + index] != attacks[i]){
+                        collision = true;
+                    }
+                }
+                if(!collision){
+                    magics[square] = magic;
+                    break;
+                }
+            }
+        }
+        return table;
+    }
+}
@@ -0,0 +1,173 @@
+package chess;
+
+import boardgame.Board;
+import boardgame.BoardException;
+import boardgame.Piece;
+import boardgame.Position;
+
+//Bitboard view of the 8x8 board: square = row * 8 + column, so a8 is 0 and h1 is 63
+public class ChessBoard extends Board {
+    private long[] pieceSets = new long[12];
+    private long[] colorSets = new long[2];
+    private long occupied;
+    private ChessPiece[] squares = new ChessPiece[64];
+    private Position[] positions = new Position[64];
+    private Color sideToMove = Color.WHITE;
+    private long key;
+    private int[] middlegame = new int[2];
+    private int[] endgame = new int[2];
+    private int phase;
+
+    public ChessBoard(){
+        super(8, 8);
+        for (int square = 0; square < 64; square++) {
+            positions[square] = new Position(square / 8, square % 8);
+        }
+    }
+
+    public static int square(int row, int column){
+        return row * 8 + column;
+    }
+
+    public static int square(Position position){
+        return square(position.getRow(), position.getColumn());
+    }
+
+    public static long bit(int square){
+        return 1L << square;
+    }
+
+    public static long bit(Position position){
+        return 1L << square(position);
+    }
+
+    private static int index(PieceType type, Color color){
+        return color.ordinal() * 6 + type.ordinal();
+    }
+
+    public long getOccupied(){
+        return occupied;
+    }
+
+    public long getPieces(Color color){
+        return colorSets[color.ordinal()];
+    }
+
+    public long getPieces(PieceType type, Color color){
+        return pieceSets[index(type, color)];
+    }
+
+    //Shared Position instance for a square, callers must not modify it
+    public Position position(int square){
+        return positions[square];
+    }
+
+    public ChessPiece pieceAt(int square){
+        return squares[square];
+    }
+
+    public Color getSideToMove(){
+        return sideToMove;
+    }
+
+    public void setSideToMove(Color sideToMove){
+        if(this.sideToMove != sideToMove){
+            key ^= Zobrist.side();
+        }
+        this.sideToMove = sideToMove;
+    }
+
+    //Zobrist key of the pieces and the side to move, kept up to date by placePiece/removePiece
+    public long getKey(){
+        return key;
+    }
+
+    //Piece-square sums of one colour (material included), kept up to date by placePiece/removePiece
+    public int getMiddlegameScore(Color color){
+        return middlegame[color.ordinal()];
+    }
+
+    public int getEndgameScore(Color color){
+        return endgame[color.ordinal()];
+    }
+
+    //Game phase from the non-pawn material left, PieceSquareTables.MAX_PHASE at the start (more after promotions)
+    public int getPhase(){
+        return phase;
+    }
+
+    //Pieces of the given colour attacking square, found by looking outwards from the square itself
+    public long attackersTo(int square, long occupied, Color by){
+        Color defender = (by == Color.WHITE) ? Color.BLACK : Color.WHITE;
+        long queens = getPieces(PieceType.QUEEN, by);
+        return (Attacks.pawn(defender, square) & getPieces(PieceType.PAWN, by))
+            | (Attacks.knight(square) & getPieces(PieceType.KNIGHT, by))
+            | (Attacks.king(square) & getPieces(PieceType.KING, by))
+            | (Attacks.rook(square, occupied) & (getPieces(PieceType.ROOK, by) | queens))
+            | (Attacks.bishop(square, occupied) & (getPieces(PieceType.BISHOP, by) | queens));
+    }
+
+    public boolean isSquareAttacked(int square, Color by){
+        return attackersTo(square, occupied, by) != 0L;
+    }
+
+    @Override
+    public Piece piece(int row, int column){
+        if(!positionExists(row, column)){
+            throw new BoardException("Position not on the board");
+        }
+        return squares[square(row, column)];
+    }
+
+    @Override
+    public Piece piece(Position position){
+        return piece(position.getRow(), position.getColumn());
+    }
+
+    @Override
+    public boolean thereIsAPiece(Position position){
+        if(!positionExists(position)){
+            throw new BoardException("Position not on the board");
+        }
+        return (occupied & bit(position)) != 0L;
+    }
+
+    @Override
+    public void placePiece(Piece piece, Position position){
+        super.placePiece(piece, position);
+        ChessPiece p = (ChessPiece)piece;
+        PieceType type = p.getType();
+        Color color = p.getColor();
+        int square = square(position);
+        long bit = bit(square);
+        pieceSets[index(type, color)] |= bit;
+        colorSets[color.ordinal()] |= bit;
+        occupied |= bit;
+        squares[square] = p;
+        key ^= Zobrist.piece(type, color, square);
+        middlegame[color.ordinal()] += PieceSquareTables.middlegame(type, color, square);
+        endgame[color.ordinal()] += PieceSquareTables.endgame(type, color, square);
+        phase += PieceSquareTables.phase(type);
+    }
+
+    @Override
+    public Piece removePiece(Position position){
+        Piece piece = super.removePiece(position);
+        if(piece != null){
+            ChessPiece p = (ChessPiece)piece;
+            PieceType type = p.getType();
+            Color color = p.getColor();
+            int square = square(position);
+            long bit = bit(square);
+            pieceSets[index(type, color)] &= ~bit;
+            colorSets[color.ordinal()] &= ~bit;
+            occupied &= ~bit;
+            squares[square] = null;
+            key ^= Zobrist.piece(type, color, square);
+            middlegame[color.ordinal()] -= PieceSquareTables.middlegame(type, color, square);
+            endgame[color.ordinal()] -= PieceSquareTables.endgame(type, color, square);
+            phase -= PieceSquareTables.phase(type);
+        }
+        return piece;
+    }
+}
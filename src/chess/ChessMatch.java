@@ -1,30 +1,60 @@
 package chess;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Random;
 
-import boardgame.Board;
 import boardgame.Piece;
 import boardgame.Position;
 import chessPieces.*;
 
 public class ChessMatch {
-    private Board board;
+    public static final int WHITE_KING_SIDE = 1;
+    public static final int WHITE_QUEEN_SIDE = 2;
+    public static final int BLACK_KING_SIDE = 4;
+    public static final int BLACK_QUEEN_SIDE = 8;
+    private static final PieceType[] TYPES = PieceType.values();
+
+    private ChessBoard board;
     private int turn;
+    private int halfmoveClock;
     private Color currentPlayer;
     private boolean check;
     private boolean checkMate;
+    private boolean winnerToMove;
+    private boolean stalemate;
     private ChessPiece enPassantVulnerable;
     private ChessPiece promoted;
 
-    private List<Piece> piecesOnTheBoard = new ArrayList<>();
+    private PieceRegistry piecesOnTheBoard = new PieceRegistry();
     private List<Piece> capturedPieces = new ArrayList<>(); 
 
+    private MoveGenerator generator;
+    private MoveHistory history = new MoveHistory();
+    private PositionKeys keys = new PositionKeys();
+    private int[] moveBuffer = new int[256];
+
     public int getTurn(){
         return turn;
     }
 
+    //Moves as counted in FEN: starts at 1 and goes up after every Black move
+    public int getFullmoveNumber(){
+        return (turn + (winnerToMove ? 2 : 1)) / 2;
+    }
+
+    //Side that has the move in the position. After a mate played with peformChessMove the match keeps the
+    //winner as the current player, which the UI reports, but the mated side is the one to move.
+    public Color getSideToMove(){
+        return winnerToMove ? opponent(currentPlayer) : currentPlayer;
+    }
+
+    //Half moves since the last capture or pawn move, for the fifty-move rule
+    public int getHalfmoveClock(){
+        return halfmoveClock;
+    }
+
     public Color getCurrentPlayer(){
         return currentPlayer;
     }
@@ -37,6 +67,28 @@ public class ChessMatch {
         return checkMate;
     }
 
+    public boolean getStalemate(){
+        return stalemate;
+    }
+
+    //Earlier occurrences of the current position since the last capture or pawn move
+    public int getRepetitions(){
+        return keys.repetitions(getZobristKey(), halfmoveClock);
+    }
+
+    public boolean getThreefoldRepetition(){
+        return getRepetitions() >= 2;
+    }
+
+    //A hundred half moves without a capture or pawn move, unless the last of them gave mate
+    public boolean getFiftyMoveRule(){
+        return halfmoveClock >= 100 && !checkMate;
+    }
+
+    public boolean getGameOver(){
+        return checkMate || stalemate || getFiftyMoveRule() || getThreefoldRepetition();
+    }
+
     public ChessPiece getEnPassantVulnerable(){
         return enPassantVulnerable;
     }
@@ -45,22 +97,234 @@ public class ChessMatch {
         return promoted;
     }
 
+    //Castling still allowed by moveCount: the king and the rook on its side have never moved
+    public int getCastlingRights(){
+        return castlingRights(Color.WHITE) | (castlingRights(Color.BLACK) << 2);
+    }
+
+    //Square behind the pawn that just made a double step, or -1 if there is none
+    public int getEnPassantSquare(){
+        if(enPassantVulnerable == null || enPassantVulnerable.getSquare() < 0){
+            return -1;
+        }
+        return enPassantVulnerable.getSquare() + ((enPassantVulnerable.getColor() == Color.WHITE) ? 8 : -8);
+    }
+
+    //Incremental: the board keeps the piece and side part, castling and en passant are O(1) lookups
+    public long getZobristKey(){
+        return board.getKey() ^ Zobrist.castling(getCastlingRights()) ^ enPassantKey() ^ (winnerToMove ? Zobrist.side() : 0L);
+    }
+
+    //Full recomputation from the board, only meant to cross-check getZobristKey()
+    public long computeZobristKey(){
+        long key = (getSideToMove() == Color.BLACK) ? Zobrist.side() : 0L;
+        for (int square = 0; square < 64; square++) {
+            ChessPiece p = board.pieceAt(square);
+            if(p != null){
+                key ^= Zobrist.piece(p.getType(), p.getColor(), square);
+            }
+        }
+        return key ^ Zobrist.castling(getCastlingRights()) ^ enPassantKey();
+    }
+
+    //Only hashed when a capture is actually possible, so transpositions still match
+    private long enPassantKey(){
+        int enPassantSquare = getEnPassantSquare();
+        if(enPassantSquare >= 0 && (Attacks.pawn(enPassantVulnerable.getColor(), enPassantSquare) & board.getPieces(PieceType.PAWN, opponent(enPassantVulnerable.getColor()))) != 0L){
+            return Zobrist.enPassant(enPassantSquare % 8);
+        }
+        return 0L;
+    }
+
     public ChessMatch(String mode){
-        board = new Board(8,8);
+        this(mode, new Random());
+    }
+
+    //Seeded Chess960 setups are reproducible, which perft and benchmarks rely on
+    public ChessMatch(String mode, long seed){
+        this(mode, new Random(seed));
+    }
+
+    private ChessMatch(String mode, Random random){
+        board = new ChessBoard();
+        generator = new MoveGenerator(this, board);
         turn = 1;
         currentPlayer = Color.WHITE;
         if(mode.equals("Y")){
-            randomSetup();
+            randomSetup(random);
         }else{
             intialSetup();
         }
     }
 
+    private ChessMatch(){
+        board = new ChessBoard();
+        generator = new MoveGenerator(this, board);
+        turn = 1;
+        currentPlayer = Color.WHITE;
+    }
+
+    public static ChessMatch fromFen(String fen){
+        ChessMatch chessMatch = new ChessMatch();
+        chessMatch.loadFen(fen);
+        return chessMatch;
+    }
+
+    //Replaces the whole position, so one match can be reused to load many positions
+    public void loadFen(String fen){
+        byte[] data = fen.getBytes(StandardCharsets.US_ASCII);
+        loadFen(data, 0, data.length);
+    }
+
+    //Loads the FEN held as ASCII in data[offset, offset + length), no String is built on the way
+    public void loadFen(byte[] data, int offset, int length){
+        Fen.parse(this, data, offset, offset + length);
+    }
+
+    public String toFen(){
+        return Fen.format(this);
+    }
+
+    //Independent copy of the current position. The move history is not copied, only the position keys
+    //so that repetitions of earlier positions are still seen.
+    public ChessMatch(ChessMatch other){
+        board = new ChessBoard();
+        generator = new MoveGenerator(this, board);
+        keys.copyFrom(other.keys);
+        turn = other.turn;
+        halfmoveClock = other.halfmoveClock;
+        currentPlayer = other.currentPlayer;
+        board.setSideToMove(currentPlayer);
+        check = other.check;
+        checkMate = other.checkMate;
+        winnerToMove = other.winnerToMove;
+        stalemate = other.stalemate;
+        for (int square = 0; square < 64; square++) {
+            ChessPiece p = other.board.pieceAt(square);
+            if(p != null){
+                ChessPiece copy = newPiece(p.getType(), p.getColor());
+                copy.setMoveCount(p.getMoveCount());
+                board.placePiece(copy, board.position(square));
+                piecesOnTheBoard.add(copy);
+                if(p == other.enPassantVulnerable){
+                    enPassantVulnerable = copy;
+                }
+                if(p == other.promoted){
+                    promoted = copy;
+                }
+            }
+        }
+    }
+
+    //Continues from a snapshot; the positions it remembers still count as repetitions
+    public ChessMatch(PositionSnapshot snapshot){
+        this();
+        setUp(snapshot.pieces(), snapshot.getSideToMove(), snapshot.getCastlingRights(), snapshot.getEnPassantSquare(), snapshot.getHalfmoveClock(), snapshot.getFullmoveNumber());
+        keys.load(snapshot.previousKeys());
+    }
+
+    //Immutable copy of the current position for other threads, O(pieces) with no piece objects copied
+    public PositionSnapshot snapshot(){
+        return new PositionSnapshot(pieceCodes(), getSideToMove(), getCastlingRights(), getEnPassantSquare(), halfmoveClock, getFullmoveNumber(), getZobristKey(), keys.recent(halfmoveClock));
+    }
+
+    //One byte per square, colour * 6 + type + 1 or 0 when empty, the way Fen hands positions to setUp
+    byte[] pieceCodes(){
+        byte[] pieces = new byte[64];
+        long occupied = board.getOccupied();
+        while(occupied != 0L){
+            int square = Long.numberOfTrailingZeros(occupied);
+            occupied &= occupied - 1;
+            ChessPiece p = board.pieceAt(square);
+            pieces[square] = (byte)(p.getColor().ordinal() * 6 + p.getType().ordinal() + 1);
+        }
+        return pieces;
+    }
+
+    public ChessBoard getBoard(){
+        return board;
+    }
+
+    //Empties the board and resets every piece of match state
+    void clear(){
+        long pieces = board.getOccupied();
+        while(pieces != 0L){
+            int square = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            piecesOnTheBoard.remove((ChessPiece)board.removePiece(board.position(square)));
+        }
+        capturedPieces.clear();
+        history.clear();
+        keys.clear();
+        turn = 1;
+        halfmoveClock = 0;
+        currentPlayer = Color.WHITE;
+        board.setSideToMove(currentPlayer);
+        check = false;
+        checkMate = false;
+        winnerToMove = false;
+        stalemate = false;
+        enPassantVulnerable = null;
+        promoted = null;
+    }
+
+    //Sets up a position decoded by Fen: pieces holds colour * 6 + type + 1 for every square, 0 when empty.
+    //Castling rights and double steps are expressed through moveCount, the way the pieces read them.
+    void setUp(byte[] pieces, Color side, int castlingRights, int enPassantSquare, int halfmoveClock, int fullmoveNumber){
+        clear();
+        for (int square = 0; square < 64; square++) {
+            if(pieces[square] != 0){
+                PieceType type = TYPES[(pieces[square] - 1) % 6];
+                Color color = ((pieces[square] - 1) / 6 == Color.WHITE.ordinal()) ? Color.WHITE : Color.BLACK;
+                ChessPiece p = newPiece(type, color);
+                if(type == PieceType.PAWN){
+                    p.setMoveCount((square / 8 == ((color == Color.WHITE) ? 6 : 1)) ? 0 : 1);
+                }else if(type == PieceType.KING || type == PieceType.ROOK){
+                    p.setMoveCount(1);
+                }
+                board.placePiece(p, board.position(square));
+                piecesOnTheBoard.add(p);
+            }
+        }
+        setUpCastling(Color.WHITE, castlingRights & (WHITE_KING_SIDE | WHITE_QUEEN_SIDE));
+        setUpCastling(Color.BLACK, castlingRights >> 2);
+        if(enPassantSquare >= 0){
+            enPassantVulnerable = board.pieceAt(enPassantSquare + ((side == Color.WHITE) ? 8 : -8));
+        }
+        this.halfmoveClock = halfmoveClock;
+        turn = fullmoveNumber * 2 - ((side == Color.WHITE) ? 1 : 0);
+        currentPlayer = side;
+        board.setSideToMove(side);
+        if(testCheck(opponent(side))){
+            clear();
+            throw new ChessException("Invalid FEN: the side not to move is in check");
+        }
+        check = testCheck(side);
+        boolean noMoves = generator.generateLegalMoves(side, moveBuffer) == 0;
+        checkMate = check && noMoves;
+        stalemate = !check && noMoves;
+    }
+
+    //Rights in the white bits, the king and the matching rooks get back an untouched moveCount
+    private void setUpCastling(Color color, int rights){
+        if(rights == 0){
+            return;
+        }
+        ChessPiece king = king(color);
+        king.setMoveCount(0);
+        if((rights & WHITE_KING_SIDE) != 0){
+            board.pieceAt(king.getSquare() + 3).setMoveCount(0);
+        }
+        if((rights & WHITE_QUEEN_SIDE) != 0){
+            board.pieceAt(king.getSquare() - 4).setMoveCount(0);
+        }
+    }
+
     public ChessPiece[][] getPieces(){
         ChessPiece[][] matrix = new ChessPiece[board.getRows()][board.getColumns()];
         for(int i=0;i<board.getRows();i++){
             for (int j = 0; j < board.getColumns(); j++) {
-                matrix[i][j] = (ChessPiece) board.piece(i,j);
+                matrix[i][j] = board.pieceAt(ChessBoard.square(i, j));
             }
         }
         return matrix;
@@ -72,36 +336,59 @@ public class ChessMatch {
         return board.piece(position).possibleMoves();
     }
 
-    public ChessPiece peformChessMove(ChessPosition sourcePosition, ChessPosition targetPosition){
-        Position source = sourcePosition.toPosition();
-        Position target = targetPosition.toPosition(); 
-        validateSourcePosition(source);
-        validateTargetPosition(source, target);
-        Piece capturedPiece = makeMove(source, target);
-
-        if(testCheck(currentPlayer)){
-            undoMove(source, target, capturedPiece);
-            throw new ChessException("You can't put yourself in check");
+    //Pseudo-legal moves of the current player written into the caller's buffer, returns the move count
+    public int possibleMoves(int[] moves){
+        int count = 0;
+        long pieces = board.getPieces(currentPlayer);
+        while(pieces != 0L){
+            count = board.pieceAt(Long.numberOfTrailingZeros(pieces)).generateMoves(moves, count);
+            pieces &= pieces - 1;
         }
+        return count;
+    }
 
-        ChessPiece movedPiece = (ChessPiece)board.piece(target);
+    //Legal moves of the current player written into the caller's buffer, returns the move count
+    public int legalMoves(int[] moves){
+        return generator.generateLegalMoves(currentPlayer, moves);
+    }
 
-        
-        //#Special move Promotion
-        promoted = null;
-        if(movedPiece instanceof Pawn){
-            if((movedPiece.getColor() == Color.WHITE && target.getRow()==0 ) || (movedPiece.getColor() == Color.BLACK && target.getRow()==7)){
-                promoted = (ChessPiece)board.piece(target);
-                promoted = replacePromotedPiece("Q");
-            }
-        }
-        
-        check = (testCheck(opponent(currentPlayer))) ? true : false;
+    //Legal moves of the current player that end on square
+    public int legalMovesTo(int square, int[] moves){
+        return generator.generateLegalMovesTo(currentPlayer, moves, square);
+    }
 
-        if(testCheckMate(opponent(currentPlayer))){
-            checkMate =true;
-        }else{
-            nextTurn();
+    //Legal captures (en passant included) and promotions only
+    public int legalCaptures(int[] moves){
+        return generator.generateLegalMoves(currentPlayer, moves, true);
+    }
+
+    //Plays a move from legalMoves(int[]) without validation; check is updated but mate is not evaluated
+    public void playMove(int move){
+        history.clearRedo();
+        doMove(move);
+    }
+
+    private ChessPiece doMove(int move){
+        keys.push(getZobristKey());
+        Position source = board.position(Move.from(move));
+        Position target = board.position(Move.to(move));
+        ChessPiece previousEnPassantVulnerable = enPassantVulnerable;
+        boolean previousCheck = check;
+        int previousHalfmoveClock = halfmoveClock;
+        ChessPiece capturedPiece = (ChessPiece)makeMove(source, target);
+        ChessPiece movedPiece = board.pieceAt(Move.to(move));
+        halfmoveClock = (capturedPiece != null || movedPiece instanceof Pawn) ? 0 : halfmoveClock + 1;
+
+        //#Special move Promotion
+        ChessPiece promotedPawn = null;
+        PieceType promotion = Move.promotion(move);
+        if(promotion != null){
+            promotedPawn = movedPiece;
+            board.removePiece(target);
+            piecesOnTheBoard.remove(promotedPawn);
+            movedPiece = newPiece(promotion, promotedPawn.getColor());
+            board.placePiece(movedPiece, target);
+            piecesOnTheBoard.add(movedPiece);
         }
 
         //#Special Move En Passant
@@ -111,7 +398,105 @@ public class ChessMatch {
             enPassantVulnerable = null;
         }
 
-        return (ChessPiece)capturedPiece;
+        history.push(move, capturedPiece, previousEnPassantVulnerable, promotedPawn, previousCheck, previousHalfmoveClock);
+        check = testCheck(opponent(currentPlayer));
+        nextTurn();
+        return capturedPiece;
+    }
+
+    //Takes back the last move made with playMove(int) or peformChessMove
+    public void unplayMove(){
+        if(history.size() == 0){
+            throw new IllegalStateException("There is no move to take back");
+        }
+        //After a mate the winner was left as the current player, see endOfMove()
+        if(!winnerToMove){
+            previousTurn();
+        }
+        //The move was legal, so the position before it was neither mate nor stalemate
+        checkMate = false;
+        winnerToMove = false;
+        stalemate = false;
+        promoted = null;
+        int move = history.move();
+        Position source = board.position(Move.from(move));
+        Position target = board.position(Move.to(move));
+
+        //#Special move Promotion
+        ChessPiece promotedPawn = history.promotedPawn();
+        if(promotedPawn != null){
+            ChessPiece promotedPiece = (ChessPiece)board.removePiece(target);
+            piecesOnTheBoard.remove(promotedPiece);
+            board.placePiece(promotedPawn, target);
+            piecesOnTheBoard.add(promotedPawn);
+        }
+
+        enPassantVulnerable = history.previousEnPassantVulnerable();
+        undoMove(source, target, history.captured());
+        check = history.previousCheck();
+        halfmoveClock = history.previousHalfmoveClock();
+        history.pop();
+        keys.pop();
+    }
+
+    //Takes back the last move and keeps it for redo(), returns the move
+    public int undo(){
+        if(history.size() == 0){
+            throw new IllegalStateException("There is no move to take back");
+        }
+        int move = history.move();
+        unplayMove();
+        history.pushRedo(move);
+        return move;
+    }
+
+    //Plays again the last move taken back by undo(), returns the move. A new move drops the moves kept for redo.
+    public int redo(){
+        if(history.redoSize() == 0){
+            throw new IllegalStateException("There is no move to redo");
+        }
+        int move = history.popRedo();
+        doMove(move);
+        endOfMove();
+        return move;
+    }
+
+    public int getUndoCount(){
+        return history.size();
+    }
+
+    public int getRedoCount(){
+        return history.redoSize();
+    }
+
+    public ChessPiece peformChessMove(ChessPosition sourcePosition, ChessPosition targetPosition){
+        Position source = sourcePosition.toPosition();
+        Position target = targetPosition.toPosition(); 
+        validateSourcePosition(source);
+        validateTargetPosition(source, target);
+        int move = legalMove(source, target);
+        if(move == Move.NONE){
+            throw new ChessException("You can't put yourself in check");
+        }
+        history.clearRedo();
+        ChessPiece capturedPiece = doMove(move);
+
+        //#Special move Promotion: a queen until replacePromotedPiece picks something else
+        promoted = (Move.promotion(move) != null) ? board.pieceAt(Move.to(move)) : null;
+
+        endOfMove();
+        return capturedPiece;
+    }
+
+    //Mate leaves the winner as the current player, which is what the UI reports
+    private void endOfMove(){
+        if(testCheckMate(currentPlayer)){
+            checkMate = true;
+            winnerToMove = true;
+            previousTurn();
+        }else{
+            stalemate = testStalemate(currentPlayer);
+        }
     }
 
     public ChessPiece replacePromotedPiece(String type){
@@ -124,12 +509,18 @@ public class ChessMatch {
         
         Position pos = promoted.getChessPosition().toPosition();
         Piece p = board.removePiece(pos);
-        piecesOnTheBoard.remove(p);
+        piecesOnTheBoard.remove((ChessPiece)p);
 
         ChessPiece newPiece = newPiece(type, promoted.getColor());
         board.placePiece(newPiece, pos);
         piecesOnTheBoard.add(newPiece);
 
+        //The undo record has to redo the promotion that was actually chosen
+        if(history.size() > 0 && Move.to(history.move()) == newPiece.getSquare()){
+            int move = history.move();
+            history.setMove(Move.of(Move.from(move), Move.to(move), newPiece.getType()));
+        }
+
         return newPiece;
 
     }
@@ -141,20 +532,29 @@ public class ChessMatch {
         return new Queen(board, color);
     }
 
+    private ChessPiece newPiece(PieceType type, Color color){
+        if(type == PieceType.PAWN) return new Pawn(board, color, this);
+        if(type == PieceType.KNIGHT) return new Knight(board, color);
+        if(type == PieceType.BISHOP) return new Bishop(board, color);
+        if(type == PieceType.ROOK) return new Rook(board, color);
+        if(type == PieceType.KING) return new King(board, color, this);
+        return new Queen(board, color);
+    }
+
     private Piece makeMove(Position source, Position target){
         ChessPiece p = (ChessPiece)board.removePiece(source);
         p.increaseMoveCount();
         Piece capturedPiece = board.removePiece(target);
         board.placePiece(p, target);
         if(capturedPiece!=null){
-            piecesOnTheBoard.remove(capturedPiece);
+            piecesOnTheBoard.remove((ChessPiece)capturedPiece);
             capturedPieces.add(capturedPiece);
         }
 
         //#Special move King side rook
         if(p instanceof King && target.getColumn() == source.getColumn()+2){
-            Position sourceT = new Position(source.getRow(), source.getColumn()+3);
-            Position targetT = new Position(source.getRow(), source.getColumn()+1);
+            Position sourceT = board.position(ChessBoard.square(source.getRow(), source.getColumn()+3));
+            Position targetT = board.position(ChessBoard.square(source.getRow(), source.getColumn()+1));
             ChessPiece rook = (ChessPiece)board.removePiece(sourceT);
             board.placePiece(rook, targetT);
             rook.increaseMoveCount();
@@ -162,8 +562,8 @@ public class ChessMatch {
         
         //#Special move Queen side rook
         if(p instanceof King && target.getColumn() == source.getColumn()-2){
-            Position sourceT = new Position(source.getRow(), source.getColumn()-4);
-            Position targetT = new Position(source.getRow(), source.getColumn()-1);
+            Position sourceT = board.position(ChessBoard.square(source.getRow(), source.getColumn()-4));
+            Position targetT = board.position(ChessBoard.square(source.getRow(), source.getColumn()-1));
             ChessPiece rook = (ChessPiece)board.removePiece(sourceT);
             board.placePiece(rook, targetT);
             rook.increaseMoveCount();
@@ -174,13 +574,13 @@ public class ChessMatch {
             if(source.getColumn()!=target.getColumn() && capturedPiece == null){
                 Position pawnPosition;
                 if(p.getColor() == Color.WHITE){
-                    pawnPosition = new Position(target.getRow()+1, target.getColumn());
+                    pawnPosition = board.position(ChessBoard.square(target.getRow()+1, target.getColumn()));
                 }else{
-                    pawnPosition = new Position(target.getRow()-1, target.getColumn());
+                    pawnPosition = board.position(ChessBoard.square(target.getRow()-1, target.getColumn()));
                 }
                 capturedPiece = board.removePiece(pawnPosition);
                 capturedPieces.add(capturedPiece);
-                piecesOnTheBoard.remove(capturedPiece);
+                piecesOnTheBoard.remove((ChessPiece)capturedPiece);
             }
         }
 
@@ -193,14 +593,14 @@ public class ChessMatch {
         board.placePiece(p, source);
         if(capturedPiece != null){
             board.placePiece(capturedPiece, target);
-            capturedPieces.remove(capturedPiece);
-            piecesOnTheBoard.add(capturedPiece);
+            capturedPieces.remove(capturedPieces.size() - 1);
+            piecesOnTheBoard.add((ChessPiece)capturedPiece);
         }
 
         //#Special move King side rook
         if(p instanceof King && target.getColumn() == source.getColumn()+2){
-            Position sourceT = new Position(source.getRow(), source.getColumn()+3);
-            Position targetT = new Position(source.getRow(), source.getColumn()+1);
+            Position sourceT = board.position(ChessBoard.square(source.getRow(), source.getColumn()+3));
+            Position targetT = board.position(ChessBoard.square(source.getRow(), source.getColumn()+1));
             ChessPiece rook = (ChessPiece)board.removePiece(targetT);
             board.placePiece(rook, sourceT);
             rook.decreaseMoveCount();
@@ -208,8 +608,8 @@ public class ChessMatch {
         
         //#Special move Queen side rook
         if(p instanceof King && target.getColumn() == source.getColumn()-2){
-            Position sourceT = new Position(source.getRow(), source.getColumn()-4);
-            Position targetT = new Position(source.getRow(), source.getColumn()-1);
+            Position sourceT = board.position(ChessBoard.square(source.getRow(), source.getColumn()-4));
+            Position targetT = board.position(ChessBoard.square(source.getRow(), source.getColumn()-1));
             ChessPiece rook = (ChessPiece)board.removePiece(targetT);
             board.placePiece(rook, sourceT);
             rook.decreaseMoveCount();
@@ -221,9 +621,9 @@ public class ChessMatch {
                 ChessPiece pawn = (ChessPiece)board.removePiece(target);
                 Position pawnPosition;
                 if(p.getColor() == Color.WHITE){
-                    pawnPosition = new Position(3, target.getColumn());
+                    pawnPosition = board.position(ChessBoard.square(3, target.getColumn()));
                 }else{
-                    pawnPosition = new Position(4, target.getColumn());
+                    pawnPosition = board.position(ChessBoard.square(4, target.getColumn()));
                 }
                 board.placePiece(pawn, pawnPosition);
             }
@@ -249,9 +649,30 @@ public class ChessMatch {
         }
     }
 
+    //Legal move between the two squares, promoting to a queen, or Move.NONE
+    private int legalMove(Position source, Position target){
+        int from = ChessBoard.square(source);
+        int to = ChessBoard.square(target);
+        int count = generator.generateLegalMoves(currentPlayer, moveBuffer);
+        for (int i = 0; i < count; i++) {
+            int move = moveBuffer[i];
+            if(Move.from(move) == from && Move.to(move) == to && (Move.promotion(move) == null || Move.promotion(move) == PieceType.QUEEN)){
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+
     private void nextTurn(){
         turn++;
         currentPlayer = (currentPlayer == Color.WHITE) ? Color.BLACK : Color.WHITE;
+        board.setSideToMove(currentPlayer);
+    }
+
+    private void previousTurn(){
+        turn--;
+        currentPlayer = (currentPlayer == Color.WHITE) ? Color.BLACK : Color.WHITE;
+        board.setSideToMove(currentPlayer);
     }
 
     private Color opponent(Color color){
@@ -259,52 +680,48 @@ public class ChessMatch {
     }
 
     private ChessPiece king(Color color){
-        List<Piece> list = piecesOnTheBoard.stream().filter(x ->((ChessPiece)x).getColor()==color).collect(Collectors.toList());
-        for (Piece p : list) {
-            if(p instanceof King){
-                return (ChessPiece)p;
-            }
+        ChessPiece king = piecesOnTheBoard.king(color);
+        if(king == null){
+            throw new IllegalStateException("There is no " + color + "King on the board");
         }
-        throw new IllegalStateException("There is no " + color + "King on the board");
-
+        return king;
     }
 
-    private boolean testCheck(Color color){
-        Position kingPosition = king(color).getChessPosition().toPosition();
-        List<Piece> opponentPieces = piecesOnTheBoard.stream().filter(x ->((ChessPiece)x).getColor()==opponent(color)).collect(Collectors.toList());
-        for (Piece p : opponentPieces) {
-            boolean[][] mat = p.possibleMoves();
-            if(mat[kingPosition.getRow()][kingPosition.getColumn()]){
-                return true;
-            }
+    private int castlingRights(Color color){
+        ChessPiece king = piecesOnTheBoard.king(color);
+        if(king == null || king.getMoveCount() != 0){
+            return 0;
         }
-        return false;
-    }
-
-    private boolean testCheckMate(Color color){
-        if(!testCheck(color)){
-            return false;
-        }
-        List<Piece> list = piecesOnTheBoard.stream().filter(x ->((ChessPiece)x).getColor()==color).collect(Collectors.toList());
-        for (Piece p : list) {
-            boolean[][] mat = p.possibleMoves();
-            for (int i = 0; i < board.getRows(); i++) {
-                for (int j = 0; j < board.getColumns(); j++) {
-                    if(mat[i][j]){
-                        Position source = ((ChessPiece)p).getChessPosition().toPosition();
-                        Position target = new Position(i, j);
-                        Piece capturedPiece = makeMove(source, target);
-                        boolean testCheck = testCheck(color);
-                        undoMove(source, target, capturedPiece);
-                        if(!testCheck){
-                            return false;
-                        }
-                    }
-                }
-            }
+        int square = king.getSquare();
+        int rights = 0;
+        if(square % 8 + 3 <= 7 && unmovedRook(square + 3, color)){
+            rights |= WHITE_KING_SIDE;
         }
-        return true;
-        
+        if(square % 8 - 4 >= 0 && unmovedRook(square - 4, color)){
+            rights |= WHITE_QUEEN_SIDE;
+        }
+        return rights;
+    }
+
+    private boolean unmovedRook(int square, Color color){
+        ChessPiece p = board.pieceAt(square);
+        return p != null && p.getType() == PieceType.ROOK && p.getColor() == color && p.getMoveCount() == 0;
+    }
+
+    private int kingSquare(Color color){
+        return king(color).getSquare();
+    }
+
+    public boolean testCheck(Color color){
+        return board.isSquareAttacked(kingSquare(color), opponent(color));
+    }
+
+    public boolean testCheckMate(Color color){
+        return testCheck(color) && generator.generateLegalMoves(color, moveBuffer) == 0;
+    }
+
+    private boolean testStalemate(Color color){
+        return !testCheck(color) && generator.generateLegalMoves(color, moveBuffer) == 0;
     }
 
     private void placeNewPiece(char column, int row, ChessPiece piece){
@@ -359,7 +776,7 @@ public class ChessMatch {
         placeNewPiece('e',8,new King(board,Color.BLACK,this));
     }
 
-    private void randomSetup(){
+    private void randomSetup(Random random){
         //Pawns
         placeNewPiece('a', 2,new Pawn(board,Color.WHITE,this) );
         placeNewPiece('b', 2,new Pawn(board,Color.WHITE,this) );
@@ -383,8 +800,8 @@ public class ChessMatch {
         List<Integer> positions = new ArrayList<>();
 
         //Add bishops and making sure there are 2 biushops in differents color squares
-        int bishop1 = (int) (Math.random()*4)*2;
-        int bishop2 = (int) (Math.random()*4)*2 + 1;
+        int bishop1 = random.nextInt(4)*2;
+        int bishop2 = random.nextInt(4)*2 + 1;
         positions.add(bishop1);
         positions.add(bishop2);
         
@@ -395,7 +812,7 @@ public class ChessMatch {
                 remainingPositions.add(i);
             }
         }
-        Collections.shuffle(remainingPositions);
+        Collections.shuffle(remainingPositions, random);
         
         //Add Queen position
         positions.add(remainingPositions.remove(0));
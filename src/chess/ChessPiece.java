@@ -1,22 +1,34 @@
 package chess;
-import boardgame.Board;
-import boardgame.Piece;
 import boardgame.Position;
+import boardgame.Piece;
 
 public abstract class ChessPiece extends Piece{
     
     private Color color;
+    private PieceType type;
     private int moveCount;
+    int registryIndex = -1;
 
-    public ChessPiece (Board board, Color color){
+    public ChessPiece (ChessBoard board, Color color, PieceType type){
         super(board);
         this.color = color;
+        this.type = type;
+    }
+
+    @Override
+    protected ChessBoard getBoard(){
+        return (ChessBoard)super.getBoard();
     }
 
     public Color getColor(){
         return color;
     }
 
+    //A field rather than an override per piece class, it is read on every board update
+    public final PieceType getType(){
+        return type;
+    }
+
     public int getMoveCount(){
         return moveCount;
     }
@@ -29,13 +41,67 @@ public abstract class ChessPiece extends Piece{
         moveCount--;
     }
 
+    void setMoveCount(int moveCount){
+        this.moveCount = moveCount;
+    }
+
     public ChessPosition getChessPosition(){
         return ChessPosition.fromPosition(position);
     }
 
+    //Square index on the ChessBoard, or -1 once the piece has been taken off the board
+    public int getSquare(){
+        return (position == null) ? -1 : ChessBoard.square(position);
+    }
+
     protected boolean isThereOpponentPiece(Position position){
         ChessPiece p = (ChessPiece)getBoard().piece(position);
         return p!=null && p.getColor() != color;
     }
 
+    //Destination squares as a 64-bit mask, see ChessBoard for the square numbering
+    public abstract long possibleMovesMask();
+
+    @Override
+    public boolean[][] possibleMoves(){
+        boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
+        long mask = possibleMovesMask();
+        while(mask != 0L){
+            int square = Long.numberOfTrailingZeros(mask);
+            mat[square / 8][square % 8] = true;
+            mask &= mask - 1;
+        }
+        return mat;
+    }
+
+    @Override
+    public boolean possibleMove(Position position){
+        return (possibleMovesMask() & ChessBoard.bit(position)) != 0L;
+    }
+
+    @Override
+    public boolean isThereAnyPossibleMove(){
+        return possibleMovesMask() != 0L;
+    }
+
+    //Writes the packed moves into the caller's buffer starting at count and returns the new count
+    public int generateMoves(int[] moves, int count){
+        int from = ChessBoard.square(position);
+        long mask = possibleMovesMask();
+        while(mask != 0L){
+            moves[count++] = Move.of(from, Long.numberOfTrailingZeros(mask));
+            mask &= mask - 1;
+        }
+        return count;
+    }
+
+    protected long jump(int rowOffset, int columnOffset){
+        int row = position.getRow() + rowOffset;
+        int column = position.getColumn() + columnOffset;
+        if(row < 0 || row > 7 || column < 0 || column > 7){
+            return 0L;
+        }
+        return ChessBoard.bit(ChessBoard.square(row, column));
+    }
+
 }
@@ -30,6 +30,10 @@ public class ChessPosition {
         return new ChessPosition((char)('a' + position.getColumn()),8 - position.getRow());
     }
 
+    public static ChessPosition fromSquare(int square){
+        return new ChessPosition((char)('a' + square % 8), 8 - square / 8);
+    }
+
     @Override
     public String toString(){
         return "" + column + row;
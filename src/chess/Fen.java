@@ -0,0 +1,243 @@
+package chess;
+
+//Forsyth-Edwards Notation read straight from ASCII bytes and written back out.
+//Castling accepts KQkq as well as rook files (Shredder-FEN), but only rooks this board can castle with:
+//three files right of the king for the king side and four files left of it for the queen side.
+final class Fen {
+    private static final String PIECES = "pnbrqk";
+
+    private Fen(){
+    }
+
+    static void parse(ChessMatch chessMatch, byte[] data, int offset, int end){
+        byte[] pieces = new byte[64];
+        int[] kings = {-1, -1};
+        int[] counts = new int[12];
+        int i = skipSpaces(data, offset, end);
+
+        //Placement, rank 8 first which is also the board's square order
+        int row = 0;
+        int column = 0;
+        while(i < end && data[i] != ' '){
+            int c = data[i++];
+            if(c == '/'){
+                if(column != 8 || ++row > 7){
+                    throw invalid("bad rank layout");
+                }
+                column = 0;
+            }else if(c >= '1' && c <= '8'){
+                column += c - '0';
+                if(column > 8){
+                    throw invalid("rank " + (8 - row) + " is too long");
+                }
+            }else{
+                int type = PIECES.indexOf(Character.toLowerCase(c));
+                if(type < 0){
+                    throw invalid("unknown piece '" + (char)c + "'");
+                }
+                if(column > 7){
+                    throw invalid("rank " + (8 - row) + " is too long");
+                }
+                Color color = Character.isUpperCase(c) ? Color.WHITE : Color.BLACK;
+                int square = ChessBoard.square(row, column++);
+                if(type == PieceType.PAWN.ordinal() && (row == 0 || row == 7)){
+                    throw invalid("pawn on the first or last rank");
+                }
+                if(type == PieceType.KING.ordinal()){
+                    if(kings[color.ordinal()] >= 0){
+                        throw invalid("more than one " + color + " king");
+                    }
+                    kings[color.ordinal()] = square;
+                }
+                pieces[square] = (byte)(color.ordinal() * 6 + type + 1);
+                counts[color.ordinal() * 6 + type]++;
+            }
+        }
+        if(row != 7 || column != 8){
+            throw invalid("the board does not have 8 full ranks");
+        }
+        if(kings[0] < 0 || kings[1] < 0){
+            throw invalid("each side needs a king");
+        }
+        checkMaterial(counts, Color.WHITE);
+        checkMaterial(counts, Color.BLACK);
+
+        //Side to move
+        i = skipSpaces(data, i, end);
+        if(i >= end || (data[i] != 'w' && data[i] != 'b') || (i + 1 < end && data[i + 1] != ' ')){
+            throw invalid("side to move must be w or b");
+        }
+        Color side = (data[i++] == 'w') ? Color.WHITE : Color.BLACK;
+
+        //Castling rights
+        i = skipSpaces(data, i, end);
+        int castlingRights = 0;
+        if(i < end && data[i] == '-'){
+            i++;
+        }else{
+            while(i < end && data[i] != ' '){
+                castlingRights |= castlingRight(data[i++], pieces, kings);
+            }
+        }
+
+        //En passant target, behind the pawn that just made a double step
+        i = skipSpaces(data, i, end);
+        int enPassantSquare = -1;
+        if(i < end && data[i] == '-'){
+            i++;
+        }else{
+            if(i + 1 >= end || data[i] < 'a' || data[i] > 'h' || data[i + 1] != ((side == Color.WHITE) ? '6' : '3')){
+                throw invalid("bad en passant square");
+            }
+            enPassantSquare = ChessBoard.square('8' - data[i + 1], data[i] - 'a');
+            int pawn = enPassantSquare + ((side == Color.WHITE) ? 8 : -8);
+            int expected = ((side == Color.WHITE) ? Color.BLACK : Color.WHITE).ordinal() * 6 + PieceType.PAWN.ordinal() + 1;
+            if(pieces[pawn] != expected || pieces[enPassantSquare] != 0){
+                throw invalid("no pawn can be taken en passant");
+            }
+            i += 2;
+        }
+
+        //Move counters are optional, EPD lines stop after the en passant field
+        i = skipSpaces(data, i, end);
+        int halfmoveClock = 0;
+        int fullmoveNumber = 1;
+        if(i < end && isDigit(data[i])){
+            halfmoveClock = 0;
+            while(i < end && isDigit(data[i])){
+                halfmoveClock = halfmoveClock * 10 + (data[i++] - '0');
+            }
+            i = skipSpaces(data, i, end);
+            if(i < end && isDigit(data[i])){
+                fullmoveNumber = 0;
+                while(i < end && isDigit(data[i])){
+                    fullmoveNumber = fullmoveNumber * 10 + (data[i++] - '0');
+                }
+                fullmoveNumber = Math.max(1, fullmoveNumber);
+            }
+        }
+
+        chessMatch.setUp(pieces, side, castlingRights, enPassantSquare, halfmoveClock, fullmoveNumber);
+    }
+
+    static String format(ChessMatch chessMatch){
+        return format(chessMatch.pieceCodes(), chessMatch.getSideToMove(), chessMatch.getCastlingRights(), chessMatch.getEnPassantSquare(), chessMatch.getHalfmoveClock(), chessMatch.getFullmoveNumber());
+    }
+
+    //pieces holds colour * 6 + type + 1 for every square, 0 when empty, as parse hands it to setUp
+    static String format(byte[] pieces, Color side, int rights, int enPassantSquare, int halfmoveClock, int fullmoveNumber){
+        StringBuilder sb = new StringBuilder(90);
+        for (int row = 0; row < 8; row++) {
+            int empty = 0;
+            for (int column = 0; column < 8; column++) {
+                int code = pieces[ChessBoard.square(row, column)];
+                if(code == 0){
+                    empty++;
+                    continue;
+                }
+                if(empty > 0){
+                    sb.append(empty);
+                    empty = 0;
+                }
+                char letter = PIECES.charAt((code - 1) % 6);
+                sb.append(((code - 1) / 6 == Color.WHITE.ordinal()) ? Character.toUpperCase(letter) : letter);
+            }
+            if(empty > 0){
+                sb.append(empty);
+            }
+            if(row < 7){
+                sb.append('/');
+            }
+        }
+        sb.append((side == Color.WHITE) ? " w " : " b ");
+
+        if(rights == 0){
+            sb.append('-');
+        }else{
+            appendCastling(sb, pieces, Color.WHITE, rights);
+            appendCastling(sb, pieces, Color.BLACK, rights >> 2);
+        }
+
+        sb.append(' ').append((enPassantSquare < 0) ? "-" : ChessPosition.fromSquare(enPassantSquare).toString());
+        sb.append(' ').append(halfmoveClock);
+        sb.append(' ').append(fullmoveNumber);
+        return sb.toString();
+    }
+
+    //Standard letters when the king and rook stand on their usual files, rook files otherwise
+    private static void appendCastling(StringBuilder sb, byte[] pieces, Color color, int rights){
+        int code = color.ordinal() * 6 + PieceType.KING.ordinal() + 1;
+        int king = 0;
+        while(pieces[king] != code){
+            king++;
+        }
+        int kingColumn = king % 8;
+        boolean white = color == Color.WHITE;
+        if((rights & ChessMatch.WHITE_KING_SIDE) != 0){
+            char letter = (kingColumn == 4) ? 'k' : (char)('a' + kingColumn + 3);
+            sb.append(white ? Character.toUpperCase(letter) : letter);
+        }
+        if((rights & ChessMatch.WHITE_QUEEN_SIDE) != 0){
+            char letter = (kingColumn == 4) ? 'q' : (char)('a' + kingColumn - 4);
+            sb.append(white ? Character.toUpperCase(letter) : letter);
+        }
+    }
+
+    //Right bit for one castling letter, checked against the king and rook actually on the board
+    private static int castlingRight(int c, byte[] pieces, int[] kings){
+        Color color = Character.isUpperCase(c) ? Color.WHITE : Color.BLACK;
+        int lower = Character.toLowerCase(c);
+        int king = kings[color.ordinal()];
+        int kingColumn = king % 8;
+        if(king / 8 != ((color == Color.WHITE) ? 7 : 0)){
+            throw invalid("castling right for a king off its first rank");
+        }
+        boolean kingSide;
+        if(lower == 'k' || lower == 'q'){
+            kingSide = lower == 'k';
+        }else if(lower >= 'a' && lower <= 'h'){
+            kingSide = lower - 'a' > kingColumn;
+        }else{
+            throw invalid("unknown castling right '" + (char)c + "'");
+        }
+        int rookColumn = kingSide ? kingColumn + 3 : kingColumn - 4;
+        if(lower >= 'a' && lower <= 'h' && lower - 'a' != rookColumn){
+            throw invalid("castling with the rook on file " + (char)lower + " is not supported");
+        }
+        int rook = color.ordinal() * 6 + PieceType.ROOK.ordinal() + 1;
+        if(rookColumn < 0 || rookColumn > 7 || pieces[king - kingColumn + rookColumn] != rook){
+            throw invalid("castling right '" + (char)c + "' without its rook");
+        }
+        int right = kingSide ? ChessMatch.WHITE_KING_SIDE : ChessMatch.WHITE_QUEEN_SIDE;
+        return (color == Color.WHITE) ? right : right << 2;
+    }
+
+    //Every piece beyond the starting set has to be a promoted pawn, which also keeps each type within the
+    //ten a PieceRegistry slot holds
+    private static void checkMaterial(int[] counts, Color color){
+        int base = color.ordinal() * 6;
+        int pawns = counts[base + PieceType.PAWN.ordinal()];
+        int promoted = Math.max(0, counts[base + PieceType.KNIGHT.ordinal()] - 2)
+            + Math.max(0, counts[base + PieceType.BISHOP.ordinal()] - 2)
+            + Math.max(0, counts[base + PieceType.ROOK.ordinal()] - 2)
+            + Math.max(0, counts[base + PieceType.QUEEN.ordinal()] - 1);
+        if(pawns > 8 || pawns + promoted > 8){
+            throw invalid("too many pieces for " + color);
+        }
+    }
+
+    private static int skipSpaces(byte[] data, int i, int end){
+        while(i < end && data[i] == ' '){
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isDigit(byte c){
+        return c >= '0' && c <= '9';
+    }
+
+    private static ChessException invalid(String reason){
+        return new ChessException("Invalid FEN: " + reason);
+    }
+}
@@ -0,0 +1,104 @@
+package chess;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+//Streams one FEN (or EPD) per line into a reused ChessMatch. Lines are parsed in place in the read buffer,
+//so loading millions of positions costs no String or per-field allocation. Blank lines and # comments are skipped.
+public class FenReader implements Closeable {
+    private InputStream in;
+    private byte[] buffer = new byte[1 << 16];
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+    private long lineNumber;
+
+    public FenReader(Path path) throws IOException{
+        this(Files.newInputStream(path));
+    }
+
+    public FenReader(InputStream in){
+        this.in = in;
+    }
+
+    //Loads the next position into chessMatch, false once the input is exhausted. A line that cannot be loaded
+    //throws ChessException after it has been consumed, so the caller may report it and go on with next.
+    public boolean next(ChessMatch chessMatch) throws IOException{
+        while(true){
+            int end = findLineEnd();
+            if(end < 0){
+                return false;
+            }
+            int start = position;
+            position = end + 1;
+            lineNumber++;
+            if(end > start && buffer[end - 1] == '\r'){
+                end--;
+            }
+            while(start < end && buffer[start] == ' '){
+                start++;
+            }
+            if(start == end || buffer[start] == '#'){
+                continue;
+            }
+            try{
+                chessMatch.loadFen(buffer, start, end - start);
+            }catch(RuntimeException e){
+                throw new ChessException("Line " + lineNumber + ": " + e.getMessage());
+            }
+            return true;
+        }
+    }
+
+    public long getLineNumber(){
+        return lineNumber;
+    }
+
+    @Override
+    public void close() throws IOException{
+        in.close();
+    }
+
+    //Index of the '\n' ending the line at position (or limit for a last line without one), -1 at the end
+    private int findLineEnd() throws IOException{
+        int scanned = position;
+        while(true){
+            for (int i = scanned; i < limit; i++) {
+                if(buffer[i] == '\n'){
+                    return i;
+                }
+            }
+            if(endOfInput){
+                //A last line without its newline still counts
+                if(position < limit){
+                    return limit;
+                }
+                return -1;
+            }
+            scanned = limit - position;
+            fill();
+        }
+    }
+
+    //Moves the partial line to the front, grows the buffer for very long lines and reads more input
+    private void fill() throws IOException{
+        int remaining = limit - position;
+        if(position > 0){
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+        }else if(remaining == buffer.length){
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        position = 0;
+        limit = remaining;
+        int read = in.read(buffer, limit, buffer.length - limit);
+        if(read < 0){
+            endOfInput = true;
+        }else{
+            limit += read;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package chess;
+
+//Moves packed in an int: bits 0-5 source square, bits 6-11 target square, bits 12-14 promotion piece type
+public final class Move {
+    public static final int NONE = 0;
+    private static final PieceType[] TYPES = PieceType.values();
+
+    private Move(){
+    }
+
+    public static int of(int from, int to){
+        return from | (to << 6);
+    }
+
+    public static int of(int from, int to, PieceType promotion){
+        return from | (to << 6) | (promotion.ordinal() << 12);
+    }
+
+    public static int from(int move){
+        return move & 63;
+    }
+
+    public static int to(int move){
+        return (move >>> 6) & 63;
+    }
+
+    public static PieceType promotion(int move){
+        int type = (move >>> 12) & 7;
+        return (type == 0) ? null : TYPES[type];
+    }
+
+    //Parses coordinate notation such as e2e4 or e7e8q, Move.NONE if the text is not a move
+    public static int fromString(String text){
+        if(text.length() != 4 && text.length() != 5){
+            return NONE;
+        }
+        int from = square(text.charAt(0), text.charAt(1));
+        int to = square(text.charAt(2), text.charAt(3));
+        if(from < 0 || to < 0){
+            return NONE;
+        }
+        if(text.length() == 4){
+            return of(from, to);
+        }
+        int promotion = "nbrq".indexOf(Character.toLowerCase(text.charAt(4)));
+        return (promotion < 0) ? NONE : of(from, to, TYPES[promotion + 1]);
+    }
+
+    private static int square(char file, char rank){
+        if(file < 'a' || file > 'h' || rank < '1' || rank > '8'){
+            return -1;
+        }
+        return (8 - (rank - '0')) * 8 + (file - 'a');
+    }
+
+    public static String toString(int move){
+        int from = from(move);
+        int to = to(move);
+        String s = "" + (char)('a' + from % 8) + (8 - from / 8) + (char)('a' + to % 8) + (8 - to / 8);
+        PieceType promotion = promotion(move);
+        if(promotion != null){
+            s += "pnbrqk".charAt(promotion.ordinal());
+        }
+        return s;
+    }
+}
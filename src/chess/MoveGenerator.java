@@ -0,0 +1,160 @@
+package chess;
+
+//Legal move generation: checkers, pins and the check evasion mask are computed once per call
+class MoveGenerator {
+    private static final PieceType[] PROMOTIONS = {PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP, PieceType.KNIGHT};
+    private static final long PROMOTION_RANKS = 0xFF000000000000FFL;
+
+    private ChessMatch chessMatch;
+    private ChessBoard board;
+
+    MoveGenerator(ChessMatch chessMatch, ChessBoard board){
+        this.chessMatch = chessMatch;
+        this.board = board;
+    }
+
+    int generateLegalMoves(Color color, int[] moves){
+        return generateLegalMoves(color, moves, false);
+    }
+
+    //With tacticalOnly set only captures and promotions are generated, which is what quiescence needs
+    int generateLegalMoves(Color color, int[] moves, boolean tacticalOnly){
+        Color them = (color == Color.WHITE) ? Color.BLACK : Color.WHITE;
+        return generate(color, moves, ~0L, tacticalOnly ? board.getPieces(them) : ~0L, tacticalOnly);
+    }
+
+    //Only the moves landing on one square, castling included, as needed to resolve written moves.
+    //Pieces that neither attack the square nor could push a pawn onto it are not even looked at.
+    int generateLegalMovesTo(Color color, int[] moves, int square){
+        long pushers = (color == Color.WHITE)
+            ? (ChessBoard.bit(square) << 8) | (ChessBoard.bit(square) << 16)
+            : (ChessBoard.bit(square) >>> 8) | (ChessBoard.bit(square) >>> 16);
+        long sources = board.attackersTo(square, board.getOccupied(), color) | (pushers & board.getPieces(PieceType.PAWN, color));
+        return generate(color, moves, sources, ChessBoard.bit(square), false);
+    }
+
+    private int generate(Color color, int[] moves, long sourceMask, long targetMask, boolean tacticalOnly){
+        Color them = (color == Color.WHITE) ? Color.BLACK : Color.WHITE;
+        long us = board.getPieces(color);
+        long occupied = board.getOccupied();
+        int kingSquare = Long.numberOfTrailingZeros(board.getPieces(PieceType.KING, color));
+        long kingBit = ChessBoard.bit(kingSquare);
+        long checkers = board.attackersTo(kingSquare, occupied, them);
+        int count = 0;
+
+        //King steps, tested with the king lifted so it cannot hide behind itself
+        long kingMoves = board.pieceAt(kingSquare).possibleMovesMask();
+        long steps = kingMoves & Attacks.king(kingSquare) & targetMask;
+        long withoutKing = occupied & ~kingBit;
+        while(steps != 0L){
+            int to = Long.numberOfTrailingZeros(steps);
+            steps &= steps - 1;
+            if(board.attackersTo(to, withoutKing, them) == 0L){
+                moves[count++] = Move.of(kingSquare, to);
+            }
+        }
+        if(Long.bitCount(checkers) > 1){
+            return count;
+        }
+
+        long evasions = ~0L;
+        if(checkers != 0L){
+            evasions = Attacks.between(kingSquare, Long.numberOfTrailingZeros(checkers)) | checkers;
+        }
+        long pinned = pinnedPieces(kingSquare, us, occupied, them);
+        int enPassantTarget = enPassantTarget(color);
+        long enPassantBit = (enPassantTarget < 0) ? 0L : ChessBoard.bit(enPassantTarget);
+
+        long pieces = us & ~kingBit & sourceMask;
+        while(pieces != 0L){
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            ChessPiece p = board.pieceAt(from);
+            long targets = p.possibleMovesMask() & evasions;
+            if((pinned & ChessBoard.bit(from)) != 0L){
+                targets &= Attacks.line(kingSquare, from);
+            }
+            if(p.getType() == PieceType.PAWN){
+                targets &= ~enPassantBit & (tacticalOnly ? (targetMask | PROMOTION_RANKS) : targetMask);
+                count = addPawnMoves(from, targets, moves, count);
+            }else{
+                count = addMoves(from, targets & targetMask, moves, count);
+            }
+        }
+
+        //#Special move en passant, checked on the resulting occupancy because it removes two pieces from one rank
+        if(enPassantTarget >= 0 && (tacticalOnly || (enPassantBit & targetMask) != 0L)){
+            int capturedSquare = enPassantTarget + ((color == Color.WHITE) ? 8 : -8);
+            long attackers = Attacks.pawn(them, enPassantTarget) & board.getPieces(PieceType.PAWN, color);
+            while(attackers != 0L){
+                int from = Long.numberOfTrailingZeros(attackers);
+                attackers &= attackers - 1;
+                long after = (occupied ^ ChessBoard.bit(from) ^ ChessBoard.bit(capturedSquare)) | enPassantBit;
+                if((board.attackersTo(kingSquare, after, them) & ~ChessBoard.bit(capturedSquare)) == 0L){
+                    moves[count++] = Move.of(from, enPassantTarget);
+                }
+            }
+        }
+
+        //#Special move castling, the king may not pass through or land on an attacked square
+        long castles = kingMoves & ~Attacks.king(kingSquare) & targetMask;
+        while(checkers == 0L && castles != 0L){
+            int to = Long.numberOfTrailingZeros(castles);
+            castles &= castles - 1;
+            int passed = (to > kingSquare) ? kingSquare + 1 : kingSquare - 1;
+            if(board.attackersTo(passed, withoutKing, them) == 0L && board.attackersTo(to, withoutKing, them) == 0L){
+                moves[count++] = Move.of(kingSquare, to);
+            }
+        }
+
+        return count;
+    }
+
+    //Our pieces standing alone between the king and an enemy slider
+    private long pinnedPieces(int kingSquare, long us, long occupied, Color them){
+        long queens = board.getPieces(PieceType.QUEEN, them);
+        long snipers = (Attacks.rook(kingSquare, 0L) & (board.getPieces(PieceType.ROOK, them) | queens))
+            | (Attacks.bishop(kingSquare, 0L) & (board.getPieces(PieceType.BISHOP, them) | queens));
+        long pinned = 0L;
+        while(snipers != 0L){
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+            long blockers = Attacks.between(kingSquare, sniper) & occupied;
+            if(Long.bitCount(blockers) == 1){
+                pinned |= blockers & us;
+            }
+        }
+        return pinned;
+    }
+
+    private int enPassantTarget(Color color){
+        ChessPiece vulnerable = chessMatch.getEnPassantVulnerable();
+        if(vulnerable == null || vulnerable.getColor() == color || vulnerable.getSquare() < 0){
+            return -1;
+        }
+        return vulnerable.getSquare() + ((color == Color.WHITE) ? -8 : 8);
+    }
+
+    private int addMoves(int from, long targets, int[] moves, int count){
+        while(targets != 0L){
+            moves[count++] = Move.of(from, Long.numberOfTrailingZeros(targets));
+            targets &= targets - 1;
+        }
+        return count;
+    }
+
+    private int addPawnMoves(int from, long targets, int[] moves, int count){
+        while(targets != 0L){
+            int to = Long.numberOfTrailingZeros(targets);
+            targets &= targets - 1;
+            if(to < 8 || to >= 56){
+                for (PieceType promotion : PROMOTIONS) {
+                    moves[count++] = Move.of(from, to, promotion);
+                }
+            }else{
+                moves[count++] = Move.of(from, to);
+            }
+        }
+        return count;
+    }
+}
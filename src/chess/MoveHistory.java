@@ -0,0 +1,100 @@
+package chess;
+
+import java.util.Arrays;
+
+//Undo records kept as parallel arrays: the packed move and flags in one long, plus the pieces that have to come back.
+//The castling rook and the en passant pawn are found again from the move itself, so they need no slot of their own.
+//Moves taken back by undo sit on a plain int stack until they are redone or a new move is played.
+class MoveHistory {
+    private static final long CHECK_FLAG = 1L << 32;
+    private static final int HALFMOVE_SHIFT = 33;
+
+    private int size;
+    private long[] states = new long[64];
+    private ChessPiece[] captured = new ChessPiece[64];
+    private ChessPiece[] enPassantVulnerable = new ChessPiece[64];
+    private ChessPiece[] promotedPawns = new ChessPiece[64];
+    private int redoSize;
+    private int[] redoMoves = new int[64];
+
+    void push(int move, ChessPiece capturedPiece, ChessPiece previousEnPassantVulnerable, ChessPiece promotedPawn, boolean previousCheck, int previousHalfmoveClock){
+        if(size == states.length){
+            int capacity = size * 2;
+            states = Arrays.copyOf(states, capacity);
+            captured = Arrays.copyOf(captured, capacity);
+            enPassantVulnerable = Arrays.copyOf(enPassantVulnerable, capacity);
+            promotedPawns = Arrays.copyOf(promotedPawns, capacity);
+        }
+        states[size] = (move & 0xFFFFFFFFL) | (previousCheck ? CHECK_FLAG : 0L) | ((long)previousHalfmoveClock << HALFMOVE_SHIFT);
+        captured[size] = capturedPiece;
+        enPassantVulnerable[size] = previousEnPassantVulnerable;
+        promotedPawns[size] = promotedPawn;
+        size++;
+    }
+
+    void pop(){
+        size--;
+        captured[size] = null;
+        enPassantVulnerable[size] = null;
+        promotedPawns[size] = null;
+    }
+
+    int size(){
+        return size;
+    }
+
+    void clear(){
+        while(size > 0){
+            pop();
+        }
+        redoSize = 0;
+    }
+
+    void pushRedo(int move){
+        if(redoSize == redoMoves.length){
+            redoMoves = Arrays.copyOf(redoMoves, redoSize * 2);
+        }
+        redoMoves[redoSize++] = move;
+    }
+
+    int popRedo(){
+        return redoMoves[--redoSize];
+    }
+
+    int redoSize(){
+        return redoSize;
+    }
+
+    void clearRedo(){
+        redoSize = 0;
+    }
+
+    int move(){
+        return (int)states[size - 1];
+    }
+
+    //Promotion chosen after the move was recorded, see ChessMatch.replacePromotedPiece
+    void setMove(int move){
+        states[size - 1] = (states[size - 1] & ~0xFFFFFFFFL) | (move & 0xFFFFFFFFL);
+    }
+
+    boolean previousCheck(){
+        return (states[size - 1] & CHECK_FLAG) != 0L;
+    }
+
+    int previousHalfmoveClock(){
+        return (int)(states[size - 1] >>> HALFMOVE_SHIFT);
+    }
+
+    ChessPiece captured(){
+        return captured[size - 1];
+    }
+
+    ChessPiece previousEnPassantVulnerable(){
+        return enPassantVulnerable[size - 1];
+    }
+
+    ChessPiece promotedPawn(){
+        return promotedPawns[size - 1];
+    }
+}
@@ -0,0 +1,60 @@
+package chess;
+
+//Pieces on the board indexed by colour and type, each piece remembers its index in its slot so add and remove
+//are O(1). A slot holds at most the ten pieces one type can reach with all eight pawns promoted.
+public class PieceRegistry {
+    private static final int CAPACITY = 10;
+
+    private ChessPiece[][] slots = new ChessPiece[12][CAPACITY];
+    private int[] counts = new int[12];
+
+    private static int slot(PieceType type, Color color){
+        return color.ordinal() * 6 + type.ordinal();
+    }
+
+    //A piece that was removed goes back to its old index and the piece remove() moved there goes back to the end,
+    //so make/undo pairs keep the iteration order
+    public void add(ChessPiece piece){
+        int slot = slot(piece.getType(), piece.getColor());
+        ChessPiece[] list = slots[slot];
+        int count = counts[slot];
+        int index = piece.registryIndex;
+        if(index >= 0 && index < count){
+            list[count] = list[index];
+            list[count].registryIndex = count;
+        }else{
+            index = count;
+        }
+        list[index] = piece;
+        piece.registryIndex = index;
+        counts[slot]++;
+    }
+
+    //The last piece of the slot fills the gap, the removed piece keeps its index for add()
+    public void remove(ChessPiece piece){
+        int slot = slot(piece.getType(), piece.getColor());
+        ChessPiece[] list = slots[slot];
+        int index = piece.registryIndex;
+        if(index < 0 || index >= counts[slot] || list[index] != piece){
+            throw new IllegalStateException("Piece " + piece + " is not on the board");
+        }
+        int last = --counts[slot];
+        list[index] = list[last];
+        list[index].registryIndex = index;
+        list[last] = null;
+        piece.registryIndex = index;
+    }
+
+    public int count(PieceType type, Color color){
+        return counts[slot(type, color)];
+    }
+
+    public ChessPiece get(PieceType type, Color color, int index){
+        return slots[slot(type, color)][index];
+    }
+
+    public ChessPiece king(Color color){
+        int slot = slot(PieceType.KING, color);
+        return (counts[slot] == 0) ? null : slots[slot][0];
+    }
+}
@@ -0,0 +1,59 @@
+package chess;
+
+//Zobrist keys of the positions before each move, in a ring indexed by ply. A position can only repeat one
+//seen since the last capture or pawn move, and after a hundred of those the fifty-move rule has ended the
+//game, so a fixed ring is enough and copying it along with a match stays cheap.
+class PositionKeys {
+    private static final int SIZE = 128;
+    private static final int MASK = SIZE - 1;
+
+    private final long[] keys = new long[SIZE];
+    private int count;
+
+    void push(long key){
+        keys[count & MASK] = key;
+        count++;
+    }
+
+    void pop(){
+        count--;
+    }
+
+    void clear(){
+        count = 0;
+    }
+
+    void copyFrom(PositionKeys other){
+        System.arraycopy(other.keys, 0, keys, 0, SIZE);
+        count = other.count;
+    }
+
+    //The keys that can still be repeated, oldest first
+    long[] recent(int halfmoveClock){
+        long[] recent = new long[Math.min(Math.min(halfmoveClock, count), SIZE)];
+        for (int i = 0; i < recent.length; i++) {
+            recent[i] = keys[(count - recent.length + i) & MASK];
+        }
+        return recent;
+    }
+
+    void load(long[] recent){
+        clear();
+        for (long key : recent) {
+            push(key);
+        }
+    }
+
+    //Earlier occurrences of key within the last halfmoveClock plies. The same side has to be to move and
+    //nothing can repeat in fewer than four plies, so only every second key from four plies back is compared.
+    int repetitions(long key, int halfmoveClock){
+        int limit = Math.min(Math.min(halfmoveClock, count), SIZE);
+        int found = 0;
+        for (int back = 4; back <= limit; back += 2) {
+            if(keys[(count - back) & MASK] == key){
+                found++;
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,84 @@
+package chess;
+
+//Immutable copy of a position: one byte per square plus the FEN fields and the keys of the positions that can
+//still repeat. Nothing in it points back to a board or a match, so it can be handed to other threads while the
+//game goes on; new ChessMatch(snapshot) continues from it.
+public final class PositionSnapshot {
+    private static final PieceType[] TYPES = PieceType.values();
+
+    private final byte[] pieces;
+    private final Color sideToMove;
+    private final int castlingRights;
+    private final int enPassantSquare;
+    private final int halfmoveClock;
+    private final int fullmoveNumber;
+    private final long zobristKey;
+    private final long[] previousKeys;
+
+    PositionSnapshot(byte[] pieces, Color sideToMove, int castlingRights, int enPassantSquare, int halfmoveClock, int fullmoveNumber, long zobristKey, long[] previousKeys){
+        this.pieces = pieces;
+        this.sideToMove = sideToMove;
+        this.castlingRights = castlingRights;
+        this.enPassantSquare = enPassantSquare;
+        this.halfmoveClock = halfmoveClock;
+        this.fullmoveNumber = fullmoveNumber;
+        this.zobristKey = zobristKey;
+        this.previousKeys = previousKeys;
+    }
+
+    //Type of the piece on square, null when it is empty
+    public PieceType getPieceType(int square){
+        int code = pieces[square];
+        return (code == 0) ? null : TYPES[(code - 1) % 6];
+    }
+
+    //Colour of the piece on square, null when it is empty
+    public Color getPieceColor(int square){
+        int code = pieces[square];
+        if(code == 0){
+            return null;
+        }
+        return ((code - 1) / 6 == Color.WHITE.ordinal()) ? Color.WHITE : Color.BLACK;
+    }
+
+    public Color getSideToMove(){
+        return sideToMove;
+    }
+
+    public int getCastlingRights(){
+        return castlingRights;
+    }
+
+    public int getEnPassantSquare(){
+        return enPassantSquare;
+    }
+
+    public int getHalfmoveClock(){
+        return halfmoveClock;
+    }
+
+    public int getFullmoveNumber(){
+        return fullmoveNumber;
+    }
+
+    public long getZobristKey(){
+        return zobristKey;
+    }
+
+    public String toFen(){
+        return Fen.format(pieces, sideToMove, castlingRights, enPassantSquare, halfmoveClock, fullmoveNumber);
+    }
+
+    @Override
+    public String toString(){
+        return toFen();
+    }
+
+    byte[] pieces(){
+        return pieces;
+    }
+
+    long[] previousKeys(){
+        return previousKeys;
+    }
+}
@@ -0,0 +1,48 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+//Random keys for position hashing, fixed seed so keys are stable between runs
+public final class Zobrist {
+    private static final long[][] PIECES = new long[12][64];
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT = new long[8];
+    private static final long SIDE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x2F0B5EEDL);
+        for (int i = 0; i < 12; i++) {
+            for (int square = 0; square < 64; square++) {
+                PIECES[i][square] = random.nextLong();
+            }
+        }
+        for (int i = 0; i < 16; i++) {
+            CASTLING[i] = random.nextLong();
+        }
+        for (int i = 0; i < 8; i++) {
+            EN_PASSANT[i] = random.nextLong();
+        }
+        SIDE = random.nextLong();
+    }
+
+    private Zobrist(){
+    }
+
+    public static long piece(PieceType type, Color color, int square){
+        return PIECES[color.ordinal() * 6 + type.ordinal()][square];
+    }
+
+    //Key for a set of castling rights as returned by ChessMatch.getCastlingRights()
+    public static long castling(int rights){
+        return CASTLING[rights];
+    }
+
+    public static long enPassant(int column){
+        return EN_PASSANT[column];
+    }
+
+    //Added when black is to move
+    public static long side(){
+        return SIDE;
+    }
+}
@@ -1,14 +1,15 @@
 package chessPieces;
 
-import boardgame.Board;
-import boardgame.Position;
+import chess.Attacks;
+import chess.ChessBoard;
 import chess.ChessPiece;
 import chess.Color;
+import chess.PieceType;
 
 public class Bishop extends ChessPiece {
 
-    public Bishop(Board board, Color color) {
-        super(board, color);
+    public Bishop(ChessBoard board, Color color) {
+        super(board, color, PieceType.BISHOP);
     }
 
     @Override
@@ -17,51 +18,9 @@ public class Bishop extends ChessPiece {
     }
 
     @Override
-    public boolean[][] possibleMoves(){
-        boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-        Position p = new Position(0, 0);
-
-        //NW
-        p.setValues(position.getRow()-1,position.getColumn()-1);
-        while (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-            p.setValues(p.getRow()-1,p.getColumn()-1);
-        }
-        if(getBoard().positionExists(p) && isThereOpponentPiece(p)){
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        //NE
-        p.setValues(position.getRow()-1, position.getColumn() +1);
-        while (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-            p.setValues(p.getRow()-1,p.getColumn()+1);
-        }
-        if(getBoard().positionExists(p) && isThereOpponentPiece(p)){
-            mat[p.getRow()][p.getColumn()] = true; 
-        }
-
-        //SE
-        p.setValues(position.getRow()+1,position.getColumn() +1);
-        while (getBoard().positionExists(p)&& !getBoard().thereIsAPiece(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-            p.setValues(p.getRow()+1,p.getColumn()+1);
-        }
-        if(getBoard().positionExists(p) && isThereOpponentPiece(p)){
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        //SW
-        p.setValues(position.getRow()+1, position.getColumn()-1);
-        while (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-            p.setValues(p.getRow()+1,p.getColumn()-1);
-        }
-        if(getBoard().positionExists(p) && isThereOpponentPiece(p)){
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-        
-        return mat;
+    public long possibleMovesMask(){
+        long mask = Attacks.bishop(ChessBoard.square(position), getBoard().getOccupied());
+        return mask & ~getBoard().getPieces(getColor());
     }
     
 }
@@ -1,16 +1,17 @@
 package chessPieces;
-import boardgame.Board;
-import boardgame.Position;
+import chess.Attacks;
+import chess.ChessBoard;
 import chess.ChessMatch;
 import chess.ChessPiece;
 import chess.Color;
+import chess.PieceType;
 
 public class King extends ChessPiece{
 
     private ChessMatch chessMatch;
 
-    public King(Board board, Color color, ChessMatch chessMatch){
-        super(board, color);
+    public King(ChessBoard board, Color color, ChessMatch chessMatch){
+        super(board, color, PieceType.KING);
         this.chessMatch = chessMatch;
     }
     
@@ -19,93 +20,37 @@ public class King extends ChessPiece{
         return "K";
     }
 
-    private boolean canMove(Position position){
-        ChessPiece p = (ChessPiece)getBoard().piece(position);
-        return p==null || p.getColor() != getColor();
-    }
-
-    private boolean testRookCastling(Position position){
-        ChessPiece p = (ChessPiece)getBoard().piece(position);
+    private boolean testRookCastling(int row, int column){
+        ChessPiece p = getBoard().pieceAt(ChessBoard.square(row, column));
         return p != null && p instanceof Rook && p.getColor() == getColor() && p.getMoveCount() ==0;
     }
 
     @Override
-    public boolean[][] possibleMoves(){
-        boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-        
-        Position p = new Position(0, 0);
-        
-        //above
-        p.setValues(position.getRow()-1,position.getColumn());
-        if(getBoard().positionExists(p) && canMove(p)){
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-        
-        //below
-        p.setValues(position.getRow()+1,position.getColumn());
-        if(getBoard().positionExists(p) && canMove(p)){
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-        
-        //left
-        p.setValues(position.getRow(),position.getColumn()-1);
-        if(getBoard().positionExists(p) && canMove(p)){
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-        
-        //right
-        p.setValues(position.getRow(),position.getColumn()+1);
-        if(getBoard().positionExists(p) && canMove(p)){
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-        
-        //NW
-        p.setValues(position.getRow()-1,position.getColumn()-1);
-        if(getBoard().positionExists(p) && canMove(p)){
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-        
-        //NE
-        p.setValues(position.getRow()-1,position.getColumn()+1);
-        if(getBoard().positionExists(p) && canMove(p)){
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-        
-        //SW
-        p.setValues(position.getRow()+1,position.getColumn()-1);
-        if(getBoard().positionExists(p) && canMove(p)){
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-        
-        //SE
-        p.setValues(position.getRow()+1,position.getColumn()+1);
-        if(getBoard().positionExists(p) && canMove(p)){
-            mat[p.getRow()][p.getColumn()] = true;
-        }
+    public long possibleMovesMask(){
+        long mask = Attacks.king(ChessBoard.square(position));
+        mask &= ~getBoard().getPieces(getColor());
 
         //#Special Move Castling
         if(getMoveCount() == 0 && !chessMatch.getCheck()){
+            int row = position.getRow();
+            int column = position.getColumn();
+            long occupied = getBoard().getOccupied();
             //#Special Move castling King side rook
-            Position posT1 = new Position(position.getRow(), position.getColumn()+3);
-            if(testRookCastling(posT1)){
-                Position p1 = new Position(position.getRow(), position.getColumn()+1);
-                Position p2 = new Position(position.getRow(), position.getColumn()+2);
-                if(getBoard().piece(p1)==null && getBoard().piece(p2)==null){
-                    mat[position.getRow()][position.getColumn()+2] = true;
+            if(column + 3 <= 7 && testRookCastling(row, column + 3)){
+                long between = jump(0, 1) | jump(0, 2);
+                if((occupied & between) == 0L){
+                    mask |= jump(0, 2);
                 }
             }
             //#Special Move castling Queen side rook
-            Position posT2 = new Position(position.getRow(), position.getColumn()-4);
-            if(testRookCastling(posT2)){
-                Position p1 = new Position(position.getRow(), position.getColumn()-1);
-                Position p2 = new Position(position.getRow(), position.getColumn()-2);
-                Position p3 = new Position(position.getRow(), position.getColumn()-3);
-                if(getBoard().piece(p1)==null && getBoard().piece(p2)==null && getBoard().piece(p3)==null){
-                    mat[position.getRow()][position.getColumn()-2] = true;
+            if(column - 4 >= 0 && testRookCastling(row, column - 4)){
+                long between = jump(0, -1) | jump(0, -2) | jump(0, -3);
+                if((occupied & between) == 0L){
+                    mask |= jump(0, -2);
                 }
             }
         }
 
-        return mat;
+        return mask;
     }
 }
@@ -1,17 +1,18 @@
 package chessPieces;
 
-import boardgame.Board;
-import boardgame.Position;
+import chess.Attacks;
+import chess.ChessBoard;
 import chess.ChessMatch;
 import chess.ChessPiece;
 import chess.Color;
+import chess.PieceType;
 
 public class Pawn extends ChessPiece{
 
     private ChessMatch chessMatch;
     
-    public Pawn(Board board, Color color, ChessMatch chessMatch) {
-        super(board, color);
+    public Pawn(ChessBoard board, Color color, ChessMatch chessMatch) {
+        super(board, color, PieceType.PAWN);
         this.chessMatch = chessMatch;
     }
 
@@ -21,77 +22,31 @@ public class Pawn extends ChessPiece{
     }
 
     @Override
-    public boolean[][] possibleMoves() {
-        boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-        Position p = new Position(0, 0);
-
-        if(getColor() == Color.WHITE){
-            p.setValues(position.getRow()-1, position.getColumn());
-            if(getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)){
-                mat[p.getRow()][p.getColumn()] = true;
-            }
-            p.setValues(position.getRow()-2, position.getColumn());
-            Position p2 = new Position(position.getRow()-1, position.getColumn());
-            if(getBoard().positionExists(p) && !getBoard().thereIsAPiece(p) && getBoard().positionExists(p2) && !getBoard().thereIsAPiece(p2) && getMoveCount()==0){
-                mat[p.getRow()][p.getColumn()] = true;
-            }
-            p.setValues(position.getRow()-1, position.getColumn()-1);
-            if(getBoard().positionExists(p) && isThereOpponentPiece(p)){
-                mat[p.getRow()][p.getColumn()] = true;
-            }
-            p.setValues(position.getRow()-1, position.getColumn()+1);
-            if(getBoard().positionExists(p) && isThereOpponentPiece(p)){
-                mat[p.getRow()][p.getColumn()] = true;
-            }
-
-            //#Special Move en passant white
-            if(position.getRow()==3){
-                Position left = new Position(position.getRow(), position.getColumn()-1);
-                if(getBoard().positionExists(left) && isThereOpponentPiece(left) && getBoard().piece(left) == chessMatch.getEnPassantVulnerable()){
-                    mat[left.getRow()-1][left.getColumn()] = true;
-                }
-                Position right = new Position(position.getRow(), position.getColumn()+1);
-                if(getBoard().positionExists(right) && isThereOpponentPiece(right) && getBoard().piece(right) == chessMatch.getEnPassantVulnerable()){
-                    mat[right.getRow()-1][right.getColumn()] = true;
-                }
-
-            }
+    public long possibleMovesMask() {
+        int direction = (getColor() == Color.WHITE) ? -1 : 1;
+        long empty = ~getBoard().getOccupied();
+        long opponents = getBoard().getOccupied() & ~getBoard().getPieces(getColor());
+
+        long mask = jump(direction, 0) & empty;
+        if(mask != 0L && getMoveCount()==0){
+            mask |= jump(2 * direction, 0) & empty;
+        }
+        mask |= Attacks.pawn(getColor(), ChessBoard.square(position)) & opponents;
 
-        }else{
-            p.setValues(position.getRow()+1, position.getColumn());
-            if(getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)){
-                mat[p.getRow()][p.getColumn()] = true;
-            }
-            p.setValues(position.getRow()+2, position.getColumn());
-            Position p2 = new Position(position.getRow()+1, position.getColumn());
-            if(getBoard().positionExists(p) && !getBoard().thereIsAPiece(p) && getBoard().positionExists(p2) && !getBoard().thereIsAPiece(p2) && getMoveCount()==0){
-                mat[p.getRow()][p.getColumn()] = true;
+        //#Special Move en passant
+        ChessPiece vulnerable = chessMatch.getEnPassantVulnerable();
+        int row = position.getRow();
+        int column = position.getColumn();
+        if(vulnerable != null && vulnerable.getColor() != getColor() && row == ((getColor() == Color.WHITE) ? 3 : 4)){
+            if(column > 0 && getBoard().pieceAt(ChessBoard.square(row, column - 1)) == vulnerable){
+                mask |= jump(direction, -1);
             }
-            p.setValues(position.getRow()+1, position.getColumn()-1);
-            if(getBoard().positionExists(p) && isThereOpponentPiece(p)){
-                mat[p.getRow()][p.getColumn()] = true;
+            if(column < 7 && getBoard().pieceAt(ChessBoard.square(row, column + 1)) == vulnerable){
+                mask |= jump(direction, 1);
             }
-            p.setValues(position.getRow()+1, position.getColumn()+1);
-            if(getBoard().positionExists(p) && isThereOpponentPiece(p)){
-                mat[p.getRow()][p.getColumn()] = true;
-            }
-
-            //#Special Move en passant black
-            if(position.getRow()==4){
-                Position left = new Position(position.getRow(), position.getColumn()-1);
-                if(getBoard().positionExists(left) && isThereOpponentPiece(left) && getBoard().piece(left) == chessMatch.getEnPassantVulnerable()){
-                    mat[left.getRow()+1][left.getColumn()] = true;
-                }
-                Position right = new Position(position.getRow(), position.getColumn()+1);
-                if(getBoard().positionExists(right) && isThereOpponentPiece(right) && getBoard().piece(right) == chessMatch.getEnPassantVulnerable()){
-                    mat[right.getRow()+1][right.getColumn()] = true;
-                }
-
-            }
-
         }
 
-        return mat;
+        return mask;
     }
 
     
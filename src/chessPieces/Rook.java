@@ -1,13 +1,14 @@
 package chessPieces;
-import boardgame.Board;
-import boardgame.Position;
+import chess.Attacks;
+import chess.ChessBoard;
 import chess.ChessPiece;
 import chess.Color;
+import chess.PieceType;
 
 public class Rook extends ChessPiece{
 
-    public Rook(Board board, Color color){
-        super(board, color);
+    public Rook(ChessBoard board, Color color){
+        super(board, color, PieceType.ROOK);
     }
     
     @Override
@@ -16,51 +17,9 @@ public class Rook extends ChessPiece{
     }
 
     @Override
-    public boolean[][] possibleMoves(){
-        boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-        Position p = new Position(0, 0);
-
-        //above
-        p.setValues(position.getRow()-1,position.getColumn());
-        while (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-            p.setRow(p.getRow()-1);
-        }
-        if(getBoard().positionExists(p) && isThereOpponentPiece(p)){
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        //left
-        p.setValues(position.getRow(), position.getColumn() -1);
-        while (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-            p.setColumn(p.getColumn()-1);
-        }
-        if(getBoard().positionExists(p) && isThereOpponentPiece(p)){
-            mat[p.getRow()][p.getColumn()] = true; 
-        }
-
-        //right
-        p.setValues(position.getRow(),position.getColumn() +1);
-        while (getBoard().positionExists(p)&& !getBoard().thereIsAPiece(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-            p.setColumn(p.getColumn()+1);
-        }
-        if(getBoard().positionExists(p) && isThereOpponentPiece(p)){
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-
-        //below
-        p.setValues(position.getRow()+1, position.getColumn());
-        while (getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-            mat[p.getRow()][p.getColumn()] = true;
-            p.setRow(p.getRow()+1);
-        }
-        if(getBoard().positionExists(p) && isThereOpponentPiece(p)){
-            mat[p.getRow()][p.getColumn()] = true;
-        }
-        
-        return mat;
+    public long possibleMovesMask(){
+        long mask = Attacks.rook(ChessBoard.square(position), getBoard().getOccupied());
+        return mask & ~getBoard().getPieces(getColor());
     }
 
 
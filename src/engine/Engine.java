@@ -0,0 +1,167 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import book.Book;
+import chess.ChessMatch;
+import chess.Move;
+import chess.PositionSnapshot;
+import tablebase.Tablebase;
+
+//Entry point for "best move for the current position". With more than one thread it runs a Lazy SMP search:
+//every thread searches its own copy of the match and they cooperate only through the shared transposition table.
+public class Engine {
+    private TranspositionTable table;
+    private int threads;
+    private ExecutorService helpers;
+    private volatile Search[] current;
+    private OrderingStatistics statistics = new OrderingStatistics();
+    private Book book;
+    private Tablebase tablebase;
+    private Consumer<SearchResult> listener;
+    private int[] legal = new int[256];
+
+    public Engine(int hashMegabytes){
+        this(hashMegabytes, 1);
+    }
+
+    public Engine(int hashMegabytes, int threads){
+        if(threads < 1){
+            throw new IllegalArgumentException("The engine needs at least one thread");
+        }
+        table = new TranspositionTable(hashMegabytes);
+        this.threads = threads;
+        if(threads > 1){
+            helpers = Executors.newFixedThreadPool(threads - 1, r -> {
+                Thread thread = new Thread(r, "search-helper");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    public TranspositionTable getTable(){
+        return table;
+    }
+
+    public int getThreads(){
+        return threads;
+    }
+
+    //Move ordering counters of the last bestMove call, summed over all threads
+    public OrderingStatistics getStatistics(){
+        return statistics;
+    }
+
+    //While the position is in the book its best weighted move is played without searching; null turns it off
+    public void setBook(Book book){
+        this.book = book;
+    }
+
+    //Receives every completed iteration of the main search thread
+    public void setListener(Consumer<SearchResult> listener){
+        this.listener = listener;
+    }
+
+    //Endgame tables the search probes below the root; null turns them off
+    public void setTablebase(Tablebase tablebase){
+        this.tablebase = tablebase;
+    }
+
+    //Searches a position taken from a match that another thread keeps playing
+    public SearchResult bestMove(PositionSnapshot snapshot, SearchLimits limits){
+        return bestMove(new ChessMatch(snapshot), limits);
+    }
+
+    public SearchResult bestMove(ChessMatch chessMatch, SearchLimits limits){
+        int bookMove = bookMove(chessMatch);
+        if(bookMove != Move.NONE){
+            return new SearchResult(bookMove, 0, 0, 0, 0, new int[] {bookMove});
+        }
+        table.newSearch();
+        Search[] searches = new Search[threads];
+        for (int i = 0; i < threads; i++) {
+            searches[i] = new Search(new ChessMatch(chessMatch), table);
+            searches[i].setHelperId(i);
+            searches[i].setTablebase(tablebase);
+        }
+        searches[0].setListener(listener);
+        current = searches;
+
+        //Helpers have no limits of their own, they stop when the main thread is done
+        SearchLimits helperLimits = SearchLimits.depth(limits.getDepth());
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 1; i < threads; i++) {
+            Search helper = searches[i];
+            futures.add(helpers.submit(() -> helper.search(helperLimits)));
+        }
+
+        SearchResult result;
+        try{
+            result = searches[0].search(limits);
+        }finally{
+            for (int i = 1; i < threads; i++) {
+                searches[i].stop();
+            }
+            for (Future<?> future : futures) {
+                try{
+                    future.get();
+                }catch(InterruptedException e){
+                    Thread.currentThread().interrupt();
+                }catch(ExecutionException e){
+                    throw new IllegalStateException("Search helper failed", e.getCause());
+                }
+            }
+            current = null;
+        }
+
+        long nodes = 0;
+        statistics = new OrderingStatistics();
+        for (Search search : searches) {
+            nodes += search.getNodes();
+            statistics.add(search.getStatistics());
+        }
+        return new SearchResult(result.getBestMove(), result.getScore(), result.getDepth(), nodes, result.getTimeMillis(), result.getPrincipalVariation());
+    }
+
+    //The book is keyed by hash alone, so its move is only trusted if it is legal here
+    private int bookMove(ChessMatch chessMatch){
+        if(book == null){
+            return Move.NONE;
+        }
+        int move = book.bestMove(chessMatch);
+        if(move != Move.NONE){
+            int count = chessMatch.legalMoves(legal);
+            for (int i = 0; i < count; i++) {
+                if(legal[i] == move){
+                    return move;
+                }
+            }
+        }
+        return Move.NONE;
+    }
+
+    //Ends the running search early, bestMove then returns the last completed iteration
+    public void stop(){
+        Search[] searches = current;
+        if(searches != null){
+            searches[0].stop();
+        }
+    }
+
+    public void newGame(){
+        table.clear();
+    }
+
+    public void shutdown(){
+        if(helpers != null){
+            helpers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package engine;
+
+import chess.ChessBoard;
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.Color;
+import chess.PieceSquareTables;
+import chess.PieceType;
+
+//Static evaluation in centipawns from the point of view of the side to move: material and piece-square
+//tables, blended between middlegame and endgame by the phase. The sums are kept incrementally by ChessBoard,
+//so evaluate is O(1); evaluateFromScratch rescans the board and is checked against it when assertions are on.
+public class Evaluator {
+    private static final int[] VALUES = {100, 320, 330, 500, 900, 0};
+
+    //Plain piece values, used for capture ordering
+    public static int value(PieceType type){
+        return VALUES[type.ordinal()];
+    }
+
+    public int evaluate(ChessMatch chessMatch){
+        ChessBoard board = chessMatch.getBoard();
+        int middlegame = board.getMiddlegameScore(Color.WHITE) - board.getMiddlegameScore(Color.BLACK);
+        int endgame = board.getEndgameScore(Color.WHITE) - board.getEndgameScore(Color.BLACK);
+        int score = taper(middlegame, endgame, board.getPhase());
+        score = (chessMatch.getCurrentPlayer() == Color.WHITE) ? score : -score;
+        assert score == evaluateFromScratch(chessMatch) : "Incremental evaluation drifted from the board";
+        return score;
+    }
+
+    //Same result as evaluate, computed from the 64 squares instead of the incremental sums
+    public int evaluateFromScratch(ChessMatch chessMatch){
+        ChessBoard board = chessMatch.getBoard();
+        int middlegame = 0;
+        int endgame = 0;
+        int phase = 0;
+        for (int square = 0; square < 64; square++) {
+            ChessPiece p = board.pieceAt(square);
+            if(p != null){
+                int sign = (p.getColor() == Color.WHITE) ? 1 : -1;
+                middlegame += sign * PieceSquareTables.middlegame(p.getType(), p.getColor(), square);
+                endgame += sign * PieceSquareTables.endgame(p.getType(), p.getColor(), square);
+                phase += PieceSquareTables.phase(p.getType());
+            }
+        }
+        int score = taper(middlegame, endgame, phase);
+        return (chessMatch.getCurrentPlayer() == Color.WHITE) ? score : -score;
+    }
+
+    private static int taper(int middlegame, int endgame, int phase){
+        phase = Math.min(phase, PieceSquareTables.MAX_PHASE);
+        return (middlegame * phase + endgame * (PieceSquareTables.MAX_PHASE - phase)) / PieceSquareTables.MAX_PHASE;
+    }
+}
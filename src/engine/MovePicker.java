@@ -0,0 +1,162 @@
+package engine;
+
+import chess.ChessBoard;
+import chess.ChessPiece;
+import chess.Move;
+import chess.PieceType;
+
+//Hands out the moves of one node in stages: hash move, captures by MVV-LVA, killers, then quiet moves by history.
+//The legal moves are generated once up front; the stages only decide the order and sorting is done lazily,
+//so a node that cuts off on its first move never pays for sorting the rest.
+class MovePicker {
+    static final int STAGE_HASH = 0;
+    static final int STAGE_CAPTURES = 1;
+    static final int STAGE_KILLERS = 2;
+    static final int STAGE_QUIETS = 3;
+    static final int STAGE_DONE = 4;
+
+    private int[] moves;
+    private int[] scores = new int[256];
+    private int count;
+    private int captureEnd;
+    private int index;
+    private int hashMove;
+    private int[] killers = new int[2];
+    private int killerIndex;
+    private int stage;
+    private int pickedStage;
+
+    void init(ChessBoard board, int[] moves, int count, int hashMove, int killer1, int killer2, int[] history){
+        this.moves = moves;
+        this.count = count;
+        this.hashMove = Move.NONE;
+        killers[0] = killer1;
+        killers[1] = killer2;
+        killerIndex = 0;
+        stage = STAGE_HASH;
+        index = 0;
+
+        //Captures and promotions are moved to the front, quiet moves keep the back
+        captureEnd = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if(move == hashMove){
+                this.hashMove = move;
+            }
+            int to = Move.to(move);
+            ChessPiece victim = board.pieceAt(to);
+            PieceType promotion = Move.promotion(move);
+            ChessPiece attacker = board.pieceAt(Move.from(move));
+            boolean enPassant = attacker.getType() == PieceType.PAWN && victim == null && (Move.from(move) & 7) != (to & 7);
+            if(victim != null || promotion != null || enPassant){
+                int score = (victim != null) ? Evaluator.value(victim.getType()) * 16 : enPassant ? Evaluator.value(PieceType.PAWN) * 16 : 0;
+                if(promotion != null){
+                    score += Evaluator.value(promotion) * 16;
+                }
+                score -= attacker.getType().ordinal();
+                moves[i] = moves[captureEnd];
+                scores[i] = scores[captureEnd];
+                moves[captureEnd] = move;
+                scores[captureEnd] = score;
+                captureEnd++;
+            }else{
+                scores[i] = history[Move.from(move) * 64 + to];
+            }
+        }
+    }
+
+    //Plays the moves exactly in the given order, used for the rotated root list of Lazy SMP helpers
+    void initOrdered(int[] moves, int count){
+        this.moves = moves;
+        this.count = count;
+        hashMove = Move.NONE;
+        killers[0] = Move.NONE;
+        killers[1] = Move.NONE;
+        killerIndex = 0;
+        stage = STAGE_QUIETS;
+        index = 0;
+        captureEnd = 0;
+        for (int i = 0; i < count; i++) {
+            scores[i] = count - i;
+        }
+    }
+
+    //Next move to try or Move.NONE when the node is exhausted
+    int next(){
+        if(stage == STAGE_HASH){
+            stage = STAGE_CAPTURES;
+            if(hashMove != Move.NONE){
+                pickedStage = STAGE_HASH;
+                return hashMove;
+            }
+        }
+        if(stage == STAGE_CAPTURES){
+            while(index < captureEnd){
+                int move = pickBest(index++, captureEnd);
+                if(move != hashMove){
+                    pickedStage = STAGE_CAPTURES;
+                    return move;
+                }
+            }
+            stage = STAGE_KILLERS;
+        }
+        if(stage == STAGE_KILLERS){
+            while(killerIndex < killers.length){
+                int killer = killers[killerIndex++];
+                if(killer != Move.NONE && killer != hashMove && take(killer)){
+                    pickedStage = STAGE_KILLERS;
+                    return killer;
+                }
+            }
+            stage = STAGE_QUIETS;
+        }
+        if(stage == STAGE_QUIETS){
+            while(index < count){
+                int move = pickBest(index++, count);
+                if(move != hashMove){
+                    pickedStage = STAGE_QUIETS;
+                    return move;
+                }
+            }
+            stage = STAGE_DONE;
+        }
+        return Move.NONE;
+    }
+
+    //Stage the last move returned by next() came from
+    int getPickedStage(){
+        return pickedStage;
+    }
+
+    //Selection step: swaps the best scored move of [from, to) into from
+    private int pickBest(int from, int to){
+        int best = from;
+        for (int i = from + 1; i < to; i++) {
+            if(scores[i] > scores[best]){
+                best = i;
+            }
+        }
+        swap(from, best);
+        return moves[from];
+    }
+
+    //A killer is only played if it is one of the quiet moves still waiting here
+    private boolean take(int killer){
+        for (int i = index; i < count; i++) {
+            if(moves[i] == killer){
+                swap(index++, i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void swap(int i, int j){
+        int move = moves[i];
+        moves[i] = moves[j];
+        moves[j] = move;
+        int score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+    }
+}
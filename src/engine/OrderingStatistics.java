@@ -0,0 +1,66 @@
+package engine;
+
+//Counts how well the move ordering works: ideally almost every beta cutoff comes from the first move tried
+public class OrderingStatistics {
+    private long cutoffs;
+    private long firstMoveCutoffs;
+    private long movesBeforeCutoff;
+    private long[] stageCutoffs = new long[MovePicker.STAGE_DONE];
+
+    void recordCutoff(int stage, int moveNumber){
+        cutoffs++;
+        if(moveNumber == 0){
+            firstMoveCutoffs++;
+        }
+        movesBeforeCutoff += moveNumber;
+        stageCutoffs[stage]++;
+    }
+
+    public void add(OrderingStatistics other){
+        cutoffs += other.cutoffs;
+        firstMoveCutoffs += other.firstMoveCutoffs;
+        movesBeforeCutoff += other.movesBeforeCutoff;
+        for (int i = 0; i < stageCutoffs.length; i++) {
+            stageCutoffs[i] += other.stageCutoffs[i];
+        }
+    }
+
+    public long getCutoffs(){
+        return cutoffs;
+    }
+
+    public long getFirstMoveCutoffs(){
+        return firstMoveCutoffs;
+    }
+
+    public double getFirstMoveCutoffRate(){
+        return (cutoffs == 0) ? 0.0 : (double)firstMoveCutoffs / cutoffs;
+    }
+
+    //Moves searched in vain before the one that cut off, on average
+    public double getAverageCutoffIndex(){
+        return (cutoffs == 0) ? 0.0 : (double)movesBeforeCutoff / cutoffs;
+    }
+
+    public long getHashCutoffs(){
+        return stageCutoffs[MovePicker.STAGE_HASH];
+    }
+
+    public long getCaptureCutoffs(){
+        return stageCutoffs[MovePicker.STAGE_CAPTURES];
+    }
+
+    public long getKillerCutoffs(){
+        return stageCutoffs[MovePicker.STAGE_KILLERS];
+    }
+
+    public long getQuietCutoffs(){
+        return stageCutoffs[MovePicker.STAGE_QUIETS];
+    }
+
+    @Override
+    public String toString(){
+        return String.format("cutoffs %d first %.1f%% avg index %.2f (hash %d captures %d killers %d quiets %d)",
+            cutoffs, getFirstMoveCutoffRate() * 100, getAverageCutoffIndex(), getHashCutoffs(), getCaptureCutoffs(), getKillerCutoffs(), getQuietCutoffs());
+    }
+}
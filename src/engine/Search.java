@@ -0,0 +1,360 @@
+package engine;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import chess.ChessBoard;
+import chess.ChessMatch;
+import chess.Move;
+import chess.PieceType;
+import tablebase.Tablebase;
+
+//Negamax alpha-beta with iterative deepening, quiescence on captures and a triangular principal variation table.
+//Moves are ordered by MovePicker using the hash move, killer moves per ply and a from-to history table per side.
+//One Search owns its match and buffers; only the transposition table may be shared between threads.
+public class Search {
+    public static final int INFINITY = 32000;
+    public static final int MATE = 31000;
+    public static final int MAX_PLY = 128;
+    private static final int HISTORY_LIMIT = 1 << 20;
+
+    private ChessMatch chessMatch;
+    private TranspositionTable table;
+    private Evaluator evaluator = new Evaluator();
+    private Consumer<SearchResult> listener;
+    private Tablebase tablebase;
+
+    private int[][] moves = new int[MAX_PLY][256];
+    private int[][] pv = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private int[] pvLength = new int[MAX_PLY + 1];
+    private MovePicker[] pickers = new MovePicker[MAX_PLY];
+    private int[][] killers = new int[MAX_PLY][2];
+    private int[][] history = new int[2][64 * 64];
+    private OrderingStatistics statistics = new OrderingStatistics();
+
+    private int helperId;
+    private long nodes;
+    private long nodeLimit;
+    private long deadline;
+    private volatile boolean stopped;
+
+    public Search(ChessMatch chessMatch, TranspositionTable table){
+        this.chessMatch = chessMatch;
+        this.table = table;
+        for (int i = 0; i < MAX_PLY; i++) {
+            pickers[i] = new MovePicker();
+        }
+    }
+
+    //Receives the result of every completed iteration
+    public void setListener(Consumer<SearchResult> listener){
+        this.listener = listener;
+    }
+
+    //Positions covered by the tablebase are scored from it instead of being searched, except at the root
+    public void setTablebase(Tablebase tablebase){
+        this.tablebase = tablebase;
+    }
+
+    //Stopping is sticky, a stop that arrives before search() starts still ends it, so use one Search per search
+    public void stop(){
+        stopped = true;
+    }
+
+    //Lazy SMP helpers start at a staggered depth and try root moves in a rotated order so threads diverge
+    public void setHelperId(int helperId){
+        this.helperId = helperId;
+    }
+
+    public long getNodes(){
+        return nodes;
+    }
+
+    public OrderingStatistics getStatistics(){
+        return statistics;
+    }
+
+    public static boolean isMateScore(int score){
+        return Math.abs(score) > MATE - MAX_PLY;
+    }
+
+    public SearchResult search(SearchLimits limits){
+        long start = System.currentTimeMillis();
+        int maxDepth = (limits.getDepth() > 0) ? Math.min(limits.getDepth(), MAX_PLY - 1) : MAX_PLY - 1;
+        nodeLimit = limits.getNodes();
+        deadline = (limits.getTimeMillis() > 0) ? start + limits.getTimeMillis() : Long.MAX_VALUE;
+        nodes = 0;
+        for (int[] plyKillers : killers) {
+            Arrays.fill(plyKillers, Move.NONE);
+        }
+        ageHistory();
+
+        SearchResult result = null;
+        for (int depth = 1 + helperId % 2; depth <= maxDepth; depth++) {
+            int score = negamax(depth, -INFINITY, INFINITY, 0);
+            if(stopped && result != null){
+                break;
+            }
+            if(pvLength[0] > 0){
+                result = new SearchResult(pv[0][0], score, depth, nodes, System.currentTimeMillis() - start, Arrays.copyOf(pv[0], pvLength[0]));
+                if(listener != null){
+                    listener.accept(result);
+                }
+            }
+            if(stopped || result == null){
+                break;
+            }
+            //A mate that fits inside this depth cannot be improved by searching deeper
+            if(isMateScore(score) && MATE - Math.abs(score) <= depth){
+                break;
+            }
+            //Another iteration would not finish in the time left
+            if(limits.getTimeMillis() > 0 && System.currentTimeMillis() - start > limits.getTimeMillis() / 2){
+                break;
+            }
+        }
+        if(result == null){
+            int count = chessMatch.legalMoves(moves[0]);
+            int move = (count > 0) ? moves[0][0] : Move.NONE;
+            result = new SearchResult(move, 0, 0, nodes, System.currentTimeMillis() - start, (count > 0) ? new int[]{move} : new int[0]);
+        }
+        return result;
+    }
+
+    private int negamax(int depth, int alpha, int beta, int ply){
+        pvLength[ply] = ply;
+        boolean inCheck = chessMatch.getCheck();
+        if(inCheck){
+            depth++;
+        }
+        if(depth <= 0){
+            return quiesce(alpha, beta, ply);
+        }
+        countNode();
+        if(stopped){
+            return 0;
+        }
+        if(ply >= MAX_PLY - 1){
+            return evaluator.evaluate(chessMatch);
+        }
+        //A single repetition is scored as a draw: if it was worth repeating once it is worth repeating again
+        if(ply > 0 && chessMatch.getRepetitions() > 0){
+            return 0;
+        }
+        //The fifty-move rule draws unless the move that reached it was mate
+        if(ply > 0 && chessMatch.getHalfmoveClock() >= 100){
+            return (inCheck && chessMatch.legalMoves(moves[ply]) == 0) ? -MATE + ply : 0;
+        }
+
+        if(ply > 0 && tablebase != null){
+            int result = tablebase.probe(chessMatch);
+            if(result != Tablebase.NOT_FOUND){
+                return tablebaseScore(result, ply);
+            }
+        }
+
+        long key = chessMatch.getZobristKey();
+        int hashMove = Move.NONE;
+        long entry = table.probe(key);
+        if(entry != 0L){
+            hashMove = TranspositionTable.move(entry);
+            if(ply > 0 && TranspositionTable.depth(entry) >= depth){
+                int score = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if(bound == TranspositionTable.BOUND_EXACT
+                    || (bound == TranspositionTable.BOUND_LOWER && score >= beta)
+                    || (bound == TranspositionTable.BOUND_UPPER && score <= alpha)){
+                    return score;
+                }
+            }
+        }
+
+        int[] list = moves[ply];
+        int count = chessMatch.legalMoves(list);
+        if(count == 0){
+            return inCheck ? -MATE + ply : 0;
+        }
+        int[] sideHistory = history[chessMatch.getCurrentPlayer().ordinal()];
+        MovePicker picker = pickers[ply];
+        picker.init(chessMatch.getBoard(), list, count, hashMove, killers[ply][0], killers[ply][1], sideHistory);
+        if(ply == 0 && helperId > 0 && count > 2){
+            //Root moves are taken in picker order, then rotated so each helper starts on a different move
+            for (int i = 0; i < count; i++) {
+                list[i] = picker.next();
+            }
+            rotate(list, 1, count, helperId % (count - 1));
+            picker.initOrdered(list, count);
+        }
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = Move.NONE;
+        int searched = 0;
+        for (int move = picker.next(); move != Move.NONE; move = picker.next()) {
+            chessMatch.playMove(move);
+            int score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+            chessMatch.unplayMove();
+            if(stopped){
+                return 0;
+            }
+            if(score > best){
+                best = score;
+                bestMove = move;
+                if(score > alpha){
+                    alpha = score;
+                    updatePv(ply, move);
+                    if(score >= beta){
+                        statistics.recordCutoff(picker.getPickedStage(), searched);
+                        if(isQuiet(move)){
+                            updateQuietCutoff(ply, move, depth, sideHistory);
+                        }
+                        break;
+                    }
+                }
+            }
+            searched++;
+        }
+
+        int bound = (best >= beta) ? TranspositionTable.BOUND_LOWER : (best > originalAlpha) ? TranspositionTable.BOUND_EXACT : TranspositionTable.BOUND_UPPER;
+        table.store(key, bestMove, toTable(best, ply), depth, bound);
+        return best;
+    }
+
+    private int quiesce(int alpha, int beta, int ply){
+        pvLength[ply] = ply;
+        countNode();
+        if(stopped){
+            return 0;
+        }
+        if(ply >= MAX_PLY - 1){
+            return evaluator.evaluate(chessMatch);
+        }
+        //In check every evasion is searched and there is no stand pat
+        boolean inCheck = chessMatch.getCheck();
+        int[] list = moves[ply];
+        int count = inCheck ? chessMatch.legalMoves(list) : chessMatch.legalCaptures(list);
+        if(inCheck && count == 0){
+            return -MATE + ply;
+        }
+        if(!inCheck){
+            int standPat = evaluator.evaluate(chessMatch);
+            if(standPat >= beta){
+                return standPat;
+            }
+            if(standPat > alpha){
+                alpha = standPat;
+            }
+        }
+
+        int best = inCheck ? -INFINITY : alpha;
+        MovePicker picker = pickers[ply];
+        picker.init(chessMatch.getBoard(), list, count, Move.NONE, Move.NONE, Move.NONE, history[chessMatch.getCurrentPlayer().ordinal()]);
+        for (int move = picker.next(); move != Move.NONE; move = picker.next()) {
+            chessMatch.playMove(move);
+            int score = -quiesce(-beta, -alpha, ply + 1);
+            chessMatch.unplayMove();
+            if(stopped){
+                return 0;
+            }
+            if(score > best){
+                best = score;
+            }
+            if(score > alpha){
+                alpha = score;
+                updatePv(ply, move);
+                if(score >= beta){
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    //Mate distances are counted from the root like the mates the search finds itself
+    private static int tablebaseScore(int result, int ply){
+        int mateDistance = Math.min(ply + Tablebase.distance(result), MAX_PLY - 1);
+        switch(Tablebase.wdl(result)){
+            case Tablebase.WIN:
+                return MATE - mateDistance;
+            case Tablebase.LOSS:
+                return -MATE + mateDistance;
+            default:
+                return 0;
+        }
+    }
+
+    private boolean isQuiet(int move){
+        ChessBoard board = chessMatch.getBoard();
+        int from = Move.from(move);
+        int to = Move.to(move);
+        boolean enPassant = board.pieceAt(from).getType() == PieceType.PAWN && (from & 7) != (to & 7);
+        return board.pieceAt(to) == null && Move.promotion(move) == null && !enPassant;
+    }
+
+    //A quiet move that caused a cutoff becomes the first killer of its ply and earns history
+    private void updateQuietCutoff(int ply, int move, int depth, int[] sideHistory){
+        if(killers[ply][0] != move){
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int index = Move.from(move) * 64 + Move.to(move);
+        sideHistory[index] += depth * depth;
+        if(sideHistory[index] > HISTORY_LIMIT){
+            ageHistory();
+        }
+    }
+
+    private void ageHistory(){
+        for (int[] sideHistory : history) {
+            for (int i = 0; i < sideHistory.length; i++) {
+                sideHistory[i] /= 2;
+            }
+        }
+    }
+
+    private void countNode(){
+        nodes++;
+        if((nodes & 2047) == 0){
+            if(System.currentTimeMillis() >= deadline || (nodeLimit > 0 && nodes >= nodeLimit)){
+                stopped = true;
+            }
+        }
+    }
+
+    private void updatePv(int ply, int move){
+        pv[ply][ply] = move;
+        System.arraycopy(pv[ply + 1], ply + 1, pv[ply], ply + 1, pvLength[ply + 1] - (ply + 1));
+        pvLength[ply] = Math.max(pvLength[ply + 1], ply + 1);
+    }
+
+    private static void rotate(int[] list, int from, int to, int distance){
+        if(distance == 0){
+            return;
+        }
+        int[] copy = Arrays.copyOfRange(list, from, to);
+        for (int i = 0; i < copy.length; i++) {
+            list[from + (i + distance) % copy.length] = copy[i];
+        }
+    }
+
+    //Mate scores are stored relative to the node so they stay correct when reached through another path
+    private static int toTable(int score, int ply){
+        if(score > MATE - MAX_PLY){
+            return score + ply;
+        }
+        if(score < -MATE + MAX_PLY){
+            return score - ply;
+        }
+        return score;
+    }
+
+    private static int fromTable(int score, int ply){
+        if(score > MATE - MAX_PLY){
+            return score - ply;
+        }
+        if(score < -MATE + MAX_PLY){
+            return score + ply;
+        }
+        return score;
+    }
+}
@@ -0,0 +1,38 @@
+package engine;
+
+//Stop conditions for a search, 0 means no limit
+public class SearchLimits {
+    private int depth;
+    private long nodes;
+    private long timeMillis;
+
+    public SearchLimits(int depth, long nodes, long timeMillis){
+        this.depth = depth;
+        this.nodes = nodes;
+        this.timeMillis = timeMillis;
+    }
+
+    public static SearchLimits depth(int depth){
+        return new SearchLimits(depth, 0, 0);
+    }
+
+    public static SearchLimits nodes(long nodes){
+        return new SearchLimits(0, nodes, 0);
+    }
+
+    public static SearchLimits time(long timeMillis){
+        return new SearchLimits(0, 0, timeMillis);
+    }
+
+    public int getDepth(){
+        return depth;
+    }
+
+    public long getNodes(){
+        return nodes;
+    }
+
+    public long getTimeMillis(){
+        return timeMillis;
+    }
+}
@@ -0,0 +1,59 @@
+package engine;
+
+import chess.Move;
+
+public class SearchResult {
+    private int bestMove;
+    private int score;
+    private int depth;
+    private long nodes;
+    private long timeMillis;
+    private int[] principalVariation;
+
+    public SearchResult(int bestMove, int score, int depth, long nodes, long timeMillis, int[] principalVariation){
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.timeMillis = timeMillis;
+        this.principalVariation = principalVariation;
+    }
+
+    public int getBestMove(){
+        return bestMove;
+    }
+
+    //Centipawns from the side to move, or a mate score (see Search.isMateScore)
+    public int getScore(){
+        return score;
+    }
+
+    public int getDepth(){
+        return depth;
+    }
+
+    public long getNodes(){
+        return nodes;
+    }
+
+    public long getTimeMillis(){
+        return timeMillis;
+    }
+
+    public long getNodesPerSecond(){
+        return nodes * 1000 / Math.max(1, timeMillis);
+    }
+
+    public int[] getPrincipalVariation(){
+        return principalVariation.clone();
+    }
+
+    @Override
+    public String toString(){
+        StringBuilder sb = new StringBuilder();
+        for (int move : principalVariation) {
+            sb.append(' ').append(Move.toString(move));
+        }
+        return "depth " + depth + " score " + score + " nodes " + nodes + " nps " + getNodesPerSecond() + " pv" + sb;
+    }
+}
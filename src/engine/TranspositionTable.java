@@ -0,0 +1,155 @@
+package engine;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+//Shared hash table of search results. Lives off-heap in 64-byte aligned buckets of four entries; every entry is two longs,
+//key ^ data and data, so a read torn by another thread fails the key check instead of returning garbage (no locks needed).
+public class TranspositionTable {
+    public static final int BOUND_NONE = 0;
+    public static final int BOUND_UPPER = 1;
+    public static final int BOUND_LOWER = 2;
+    public static final int BOUND_EXACT = 3;
+
+    public enum ReplacementPolicy {
+        DEPTH_PREFERRED,
+        ALWAYS_REPLACE;
+    }
+
+    private static final int BUCKET_BYTES = 64;
+    private static final int ENTRY_BYTES = 16;
+    private static final int ENTRIES_PER_BUCKET = BUCKET_BYTES / ENTRY_BYTES;
+    private static final int SEGMENT_SHIFT = 24;
+    private static final long VALID = 1L << 48;
+
+    private ByteBuffer[] segments;
+    private long bucketMask;
+    private ReplacementPolicy policy;
+    private volatile int generation;
+
+    public TranspositionTable(int megabytes){
+        this(megabytes, ReplacementPolicy.DEPTH_PREFERRED);
+    }
+
+    public TranspositionTable(int megabytes, ReplacementPolicy policy){
+        if(megabytes < 1){
+            throw new IllegalArgumentException("Transposition table needs at least 1 MB");
+        }
+        long buckets = Long.highestOneBit((long)megabytes * 1024 * 1024 / BUCKET_BYTES);
+        long bucketsPerSegment = Math.min(buckets, 1L << SEGMENT_SHIFT);
+        segments = new ByteBuffer[(int)(buckets / bucketsPerSegment)];
+        for (int i = 0; i < segments.length; i++) {
+            int bytes = (int)(bucketsPerSegment * BUCKET_BYTES);
+            segments[i] = ByteBuffer.allocateDirect(bytes + BUCKET_BYTES).alignedSlice(BUCKET_BYTES).order(ByteOrder.nativeOrder());
+        }
+        bucketMask = buckets - 1;
+        this.policy = policy;
+    }
+
+    public long getSizeInBytes(){
+        return (bucketMask + 1) * BUCKET_BYTES;
+    }
+
+    public void clear(){
+        for (ByteBuffer segment : segments) {
+            for (int i = 0; i < segment.capacity(); i += 8) {
+                segment.putLong(i, 0L);
+            }
+        }
+        generation = 0;
+    }
+
+    //Called once per search so entries from older searches age out first
+    public void newSearch(){
+        generation = (generation + 1) & 63;
+    }
+
+    //Entry data for the key, or 0 on a miss
+    public long probe(long key){
+        long bucket = key & bucketMask;
+        ByteBuffer segment = segments[(int)(bucket >>> SEGMENT_SHIFT)];
+        int offset = (int)(bucket & ((1L << SEGMENT_SHIFT) - 1)) * BUCKET_BYTES;
+        for (int i = 0; i < ENTRIES_PER_BUCKET; i++) {
+            int entry = offset + i * ENTRY_BYTES;
+            long data = segment.getLong(entry + 8);
+            if((segment.getLong(entry) ^ data) == key && data != 0L){
+                return data;
+            }
+        }
+        return 0L;
+    }
+
+    public void store(long key, int move, int score, int depth, int bound){
+        long bucket = key & bucketMask;
+        ByteBuffer segment = segments[(int)(bucket >>> SEGMENT_SHIFT)];
+        int offset = (int)(bucket & ((1L << SEGMENT_SHIFT) - 1)) * BUCKET_BYTES;
+        int currentGeneration = generation;
+        int victim = -1;
+        int victimValue = Integer.MAX_VALUE;
+        for (int i = 0; i < ENTRIES_PER_BUCKET; i++) {
+            int entry = offset + i * ENTRY_BYTES;
+            long data = segment.getLong(entry + 8);
+            if(data == 0L || (segment.getLong(entry) ^ data) == key){
+                if(data != 0L && move == 0){
+                    move = move(data);
+                }
+                victim = entry;
+                break;
+            }
+            int age = (currentGeneration - generation(data)) & 63;
+            int value = (policy == ReplacementPolicy.DEPTH_PREFERRED) ? depth(data) - 8 * age : -age;
+            if(value < victimValue){
+                victimValue = value;
+                victim = entry;
+            }
+        }
+        long data = pack(move, score, depth, bound, currentGeneration);
+        segment.putLong(victim, key ^ data);
+        segment.putLong(victim + 8, data);
+    }
+
+    //Permille of sampled entries written during the current search
+    public int hashfull(){
+        ByteBuffer segment = segments[0];
+        int buckets = (int)Math.min(250, bucketMask + 1);
+        int used = 0;
+        for (int b = 0; b < buckets; b++) {
+            for (int i = 0; i < ENTRIES_PER_BUCKET; i++) {
+                long data = segment.getLong(b * BUCKET_BYTES + i * ENTRY_BYTES + 8);
+                if(data != 0L && generation(data) == generation){
+                    used++;
+                }
+            }
+        }
+        return used * 1000 / (buckets * ENTRIES_PER_BUCKET);
+    }
+
+    private static long pack(int move, int score, int depth, int bound, int generation){
+        return (move & 0xFFFFL)
+            | ((score & 0xFFFFL) << 16)
+            | ((long)Math.max(0, Math.min(255, depth)) << 32)
+            | ((long)bound << 40)
+            | ((long)generation << 42)
+            | VALID;
+    }
+
+    public static int move(long data){
+        return (int)(data & 0xFFFF);
+    }
+
+    public static int score(long data){
+        return (short)(data >>> 16);
+    }
+
+    public static int depth(long data){
+        return (int)((data >>> 32) & 0xFF);
+    }
+
+    public static int bound(long data){
+        return (int)((data >>> 40) & 3);
+    }
+
+    private static int generation(long data){
+        return (int)((data >>> 42) & 63);
+    }
+}
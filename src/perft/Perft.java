@@ -0,0 +1,162 @@
+package perft;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import chess.ChessMatch;
+import chess.Move;
+
+//Counts leaf nodes of the legal move tree, the standard way to check a move generator and measure its speed
+public class Perft {
+    private static final int MAX_DEPTH = 64;
+
+    private int[][] moves = new int[MAX_DEPTH][256];
+
+    public long count(ChessMatch chessMatch, int depth){
+        if(depth == 0){
+            return 1;
+        }
+        if(depth >= MAX_DEPTH){
+            throw new IllegalArgumentException("Perft depth must be below " + MAX_DEPTH);
+        }
+        int[] buffer = moves[depth];
+        int count = chessMatch.legalMoves(buffer);
+        if(depth == 1){
+            return count;
+        }
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            chessMatch.playMove(buffer[i]);
+            nodes += count(chessMatch, depth - 1);
+            chessMatch.unplayMove();
+        }
+        return nodes;
+    }
+
+    //Node count below each root move, every root move is searched on its own copy of the match
+    public static List<Division> divide(ChessMatch chessMatch, int depth, ForkJoinPool pool){
+        if(depth < 1){
+            throw new IllegalArgumentException("Divide needs a depth of at least 1");
+        }
+        int[] rootMoves = new int[256];
+        int count = chessMatch.legalMoves(rootMoves);
+        List<RootTask> tasks = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            RootTask task = new RootTask(new ChessMatch(chessMatch), rootMoves[i], depth - 1);
+            pool.execute(task);
+            tasks.add(task);
+        }
+        List<Division> result = new ArrayList<>();
+        for (RootTask task : tasks) {
+            result.add(new Division(task.move, task.join()));
+        }
+        return result;
+    }
+
+    public static long count(ChessMatch chessMatch, int depth, ForkJoinPool pool){
+        if(depth == 0){
+            return 1;
+        }
+        long nodes = 0;
+        for (Division division : divide(chessMatch, depth, pool)) {
+            nodes += division.getNodes();
+        }
+        return nodes;
+    }
+
+    public static class Division {
+        private int move;
+        private long nodes;
+
+        public Division(int move, long nodes){
+            this.move = move;
+            this.nodes = nodes;
+        }
+
+        public int getMove(){
+            return move;
+        }
+
+        public long getNodes(){
+            return nodes;
+        }
+
+        @Override
+        public String toString(){
+            return Move.toString(move) + ": " + nodes;
+        }
+    }
+
+    private static class RootTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private ChessMatch chessMatch;
+        private int move;
+        private int depth;
+
+        RootTask(ChessMatch chessMatch, int move, int depth){
+            this.chessMatch = chessMatch;
+            this.move = move;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute(){
+            chessMatch.playMove(move);
+            return new Perft().count(chessMatch, depth);
+        }
+    }
+
+    //Usage: perft.Perft <depth> [divide] [960 <seed>] [threads <n>]
+    public static void main(String[] args){
+        if(args.length < 1){
+            System.out.println("Usage: perft.Perft <depth> [divide] [960 <seed>] [fen \"<fen>\"] [threads <n>]");
+            return;
+        }
+        int depth = Integer.parseInt(args[0]);
+        boolean divide = false;
+        String mode = "N";
+        long seed = 0L;
+        String fen = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 1; i < args.length; i++) {
+            if(args[i].equals("divide")){
+                divide = true;
+            }else if(args[i].equals("960")){
+                mode = "Y";
+                seed = Long.parseLong(args[++i]);
+            }else if(args[i].equals("fen")){
+                fen = args[++i];
+            }else if(args[i].equals("threads")){
+                threads = Integer.parseInt(args[++i]);
+            }else{
+                throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        ChessMatch chessMatch = (fen != null) ? ChessMatch.fromFen(fen) : new ChessMatch(mode, seed);
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try{
+            long start = System.nanoTime();
+            long nodes = 0;
+            if(divide){
+                for (Division division : divide(chessMatch, depth, pool)) {
+                    System.out.println(division);
+                    nodes += division.getNodes();
+                }
+                System.out.println();
+            }else{
+                nodes = count(chessMatch, depth, pool);
+            }
+            long elapsed = Math.max(1L, System.nanoTime() - start);
+            System.out.println("Depth: " + depth);
+            System.out.println("Nodes: " + nodes);
+            System.out.printf("Time: %.3f s%n", elapsed / 1e9);
+            System.out.printf("Nodes per second: %.0f%n", nodes * 1e9 / elapsed);
+        }finally{
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package pgn;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import chess.ChessMatch;
+import chess.Color;
+import chess.Move;
+import util.LatencyHistogram;
+
+//Validates a PGN file on several cores. The calling thread tokenizes games and submits each one to a fixed pool,
+//where it is replayed on that worker's own ChessMatch. At most queueCapacity games are in flight: once the
+//window is full the reader waits for the oldest game, so results come back in file order and a slow pool
+//holds the reader back instead of letting parsed games pile up in memory.
+public class BatchValidator {
+    public enum Status {
+        VALID,
+        MALFORMED,
+        ILLEGAL_MOVE,
+        CHECK_MISMATCH,
+        RESULT_MISMATCH
+    }
+
+    public static class GameResult {
+        private long index;
+        private Status status;
+        private int ply;
+        private String detail;
+        private int moves;
+        private long processingNanos;
+
+        GameResult(long index, Status status, int ply, String detail, int moves, long processingNanos){
+            this.index = index;
+            this.status = status;
+            this.ply = ply;
+            this.detail = detail;
+            this.moves = moves;
+            this.processingNanos = processingNanos;
+        }
+
+        //Position of the game in the file, counting from 0
+        public long getIndex(){
+            return index;
+        }
+
+        public Status getStatus(){
+            return status;
+        }
+
+        //Half move where the problem was found, -1 when there is none or it is not tied to a move
+        public int getPly(){
+            return ply;
+        }
+
+        public String getDetail(){
+            return detail;
+        }
+
+        public int getMoves(){
+            return moves;
+        }
+
+        public long getProcessingNanos(){
+            return processingNanos;
+        }
+
+        @Override
+        public String toString(){
+            return "Game " + (index + 1) + ": " + status + ((detail != null) ? " - " + detail : "");
+        }
+    }
+
+    private int threads;
+    private int queueCapacity;
+    private long window;
+    private long[] statusCounts = new long[Status.values().length];
+    private long games;
+    private long moves;
+    private long elapsedNanos;
+    private LatencyHistogram processing = new LatencyHistogram();
+    private LatencyHistogram endToEnd = new LatencyHistogram();
+
+    public BatchValidator(int threads, int queueCapacity, long window){
+        if(threads < 1 || queueCapacity < 1){
+            throw new IllegalArgumentException("Threads and queue capacity must be positive");
+        }
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+        this.window = window;
+    }
+
+    //Results reach the consumer on the calling thread, in the order the games appear in the file
+    public void validate(Path file, Consumer<GameResult> consumer) throws IOException{
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "pgn-validator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ThreadLocal<Replayer> replayers = ThreadLocal.withInitial(Replayer::new);
+        ArrayDeque<Pending> inFlight = new ArrayDeque<>();
+        long start = System.nanoTime();
+        try(PgnReader reader = new PgnReader(file, window, false)){
+            long index = 0;
+            while(reader.nextGame()){
+                PgnGame game = reader.copyGame(index++);
+                inFlight.add(new Pending(game.getIndex(), pool.submit(() -> replayers.get().replay(game)), System.nanoTime()));
+                if(inFlight.size() >= queueCapacity){
+                    collect(inFlight.poll(), consumer);
+                }
+            }
+            while(!inFlight.isEmpty()){
+                collect(inFlight.poll(), consumer);
+            }
+        }finally{
+            pool.shutdownNow();
+            elapsedNanos += System.nanoTime() - start;
+        }
+    }
+
+    private void collect(Pending pending, Consumer<GameResult> consumer){
+        GameResult result;
+        try{
+            result = pending.future.get();
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a game", e);
+        }catch(ExecutionException e){
+            //A game that breaks the replayer is reported like any other bad game, the batch goes on
+            result = new GameResult(pending.index, Status.MALFORMED, -1, "Replay failed: " + e.getCause(), 0, 0L);
+        }
+        endToEnd.record(System.nanoTime() - pending.submitted);
+        processing.record(result.getProcessingNanos());
+        statusCounts[result.getStatus().ordinal()]++;
+        games++;
+        moves += result.getMoves();
+        consumer.accept(result);
+    }
+
+    public long getGames(){
+        return games;
+    }
+
+    public long getCount(Status status){
+        return statusCounts[status.ordinal()];
+    }
+
+    //Time spent replaying one game on a worker
+    public LatencyHistogram getProcessingLatency(){
+        return processing;
+    }
+
+    //Time from handing a game to the pool until its result was collected, queueing included
+    public LatencyHistogram getEndToEndLatency(){
+        return endToEnd;
+    }
+
+    public String report(){
+        double seconds = Math.max(1L, elapsedNanos) / 1e9;
+        StringBuilder sb = new StringBuilder();
+        sb.append("Games: ").append(games).append(System.lineSeparator());
+        for (Status status : Status.values()) {
+            sb.append("  ").append(status).append(": ").append(getCount(status)).append(System.lineSeparator());
+        }
+        sb.append("Moves: ").append(moves).append(System.lineSeparator());
+        sb.append(String.format("Time: %.3f s with %d threads%n", seconds, threads));
+        sb.append(String.format("Games per second: %.0f%n", games / seconds));
+        sb.append(String.format("Moves per second: %.0f%n", moves / seconds));
+        sb.append("Replay latency: ").append(processing).append(System.lineSeparator());
+        sb.append("End-to-end latency: ").append(endToEnd);
+        return sb.toString();
+    }
+
+    private static class Pending {
+        private long index;
+        private Future<GameResult> future;
+        private long submitted;
+
+        Pending(long index, Future<GameResult> future, long submitted){
+            this.index = index;
+            this.future = future;
+            this.submitted = submitted;
+        }
+    }
+
+    //Per worker thread: one match reloaded for every game
+    private static class Replayer {
+        private static final byte[] START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1".getBytes(StandardCharsets.US_ASCII);
+
+        private ChessMatch chessMatch = new ChessMatch("N");
+        private int[] legal = new int[256];
+
+        GameResult replay(PgnGame game){
+            long start = System.nanoTime();
+            if(game.getError() != null){
+                return result(game, Status.MALFORMED, -1, game.getError(), start);
+            }
+            byte[] fen = (game.getFen() != null) ? game.getFen() : START_FEN;
+            try{
+                chessMatch.loadFen(fen, 0, fen.length);
+            }catch(RuntimeException e){
+                return result(game, Status.MALFORMED, -1, e.getMessage(), start);
+            }
+
+            byte[] san = game.getSan();
+            for (int ply = 0; ply < game.getMoveCount(); ply++) {
+                int from = game.getSanStart(ply);
+                int to = game.getSanEnd(ply);
+                int move = San.resolve(chessMatch, san, from, to - from, legal);
+                if(move == Move.NONE){
+                    return result(game, Status.ILLEGAL_MOVE, ply, "Illegal or ambiguous move " + text(san, from, to), start);
+                }
+                chessMatch.playMove(move);
+
+                //The suffix has to say exactly what happened: '#' (or '++') for mate, '+' for check, nothing otherwise
+                int end = to;
+                while(end > from && (san[end - 1] == '!' || san[end - 1] == '?')){
+                    end--;
+                }
+                boolean writtenMate = end > from && (san[end - 1] == '#' || (end - 1 > from && san[end - 1] == '+' && san[end - 2] == '+'));
+                boolean writtenCheck = !writtenMate && end > from && san[end - 1] == '+';
+                boolean check = chessMatch.getCheck();
+                boolean mate = check && chessMatch.legalMoves(legal) == 0;
+                if(writtenMate != mate || writtenCheck != (check && !mate)){
+                    String actual = mate ? "mate" : check ? "check" : "no check";
+                    return result(game, Status.CHECK_MISMATCH, ply, "Suffix of " + text(san, from, to) + " is wrong, the move gives " + actual, start);
+                }
+            }
+
+            //A finished game has to carry the result the final position forces
+            String result = game.getResult();
+            boolean decisive = PgnReader.WHITE_WINS.equals(result) || PgnReader.BLACK_WINS.equals(result);
+            if(chessMatch.legalMoves(legal) == 0 && (decisive || PgnReader.DRAW.equals(result))){
+                String forced = !chessMatch.getCheck() ? PgnReader.DRAW : (chessMatch.getCurrentPlayer() == Color.WHITE) ? PgnReader.BLACK_WINS : PgnReader.WHITE_WINS;
+                if(!forced.equals(result)){
+                    return result(game, Status.RESULT_MISMATCH, -1, "Result " + result + " but the final position is " + (chessMatch.getCheck() ? "mate" : "stalemate"), start);
+                }
+            }
+            return result(game, Status.VALID, -1, null, start);
+        }
+
+        private static GameResult result(PgnGame game, Status status, int ply, String detail, long start){
+            return new GameResult(game.getIndex(), status, ply, detail, (ply >= 0) ? ply : game.getMoveCount(), System.nanoTime() - start);
+        }
+
+        private static String text(byte[] san, int from, int to){
+            return new String(san, from, to - from, StandardCharsets.US_ASCII);
+        }
+    }
+
+    //Usage: pgn.BatchValidator <file> [threads <n>] [queue <n>] [window <mb>] [quiet]
+    public static void main(String[] args) throws IOException{
+        if(args.length < 1){
+            System.out.println("Usage: pgn.BatchValidator <file> [threads <n>] [queue <n>] [window <mb>] [quiet]");
+            return;
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        int queue = 0;
+        long window = 1L << 30;
+        boolean quiet = false;
+        for (int i = 1; i < args.length; i++) {
+            if(args[i].equals("threads")){
+                threads = Integer.parseInt(args[++i]);
+            }else if(args[i].equals("queue")){
+                queue = Integer.parseInt(args[++i]);
+            }else if(args[i].equals("window")){
+                window = Long.parseLong(args[++i]) << 20;
+            }else if(args[i].equals("quiet")){
+                quiet = true;
+            }else{
+                throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        BatchValidator validator = new BatchValidator(threads, (queue > 0) ? queue : threads * 64, window);
+        boolean print = !quiet;
+        validator.validate(Path.of(args[0]), result -> {
+            if(print && result.getStatus() != Status.VALID){
+                System.out.println(result);
+            }
+        });
+        System.out.println(validator.report());
+    }
+}
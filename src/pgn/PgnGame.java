@@ -0,0 +1,54 @@
+package pgn;
+
+//One game as written: the FEN tag (null for the standard start), the move tokens packed one after the other
+//and the termination marker. Produced by PgnReader.copyGame for replay on another thread.
+class PgnGame {
+    private long index;
+    private byte[] fen;
+    private byte[] san;
+    private int[] sanEnds;
+    private String result;
+    private String error;
+
+    PgnGame(long index, byte[] fen, byte[] san, int[] sanEnds, String result, String error){
+        this.index = index;
+        this.fen = fen;
+        this.san = san;
+        this.sanEnds = sanEnds;
+        this.result = result;
+        this.error = error;
+    }
+
+    long getIndex(){
+        return index;
+    }
+
+    byte[] getFen(){
+        return fen;
+    }
+
+    byte[] getSan(){
+        return san;
+    }
+
+    int getMoveCount(){
+        return sanEnds.length;
+    }
+
+    int getSanStart(int move){
+        return (move == 0) ? 0 : sanEnds[move - 1];
+    }
+
+    int getSanEnd(int move){
+        return sanEnds[move];
+    }
+
+    String getResult(){
+        return result;
+    }
+
+    //Problem found while reading, before any replay
+    String getError(){
+        return error;
+    }
+}
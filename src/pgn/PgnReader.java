@@ -0,0 +1,511 @@
+package pgn;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import chess.ChessMatch;
+import chess.Move;
+
+//Reads PGN games one at a time from a memory-mapped file and replays them through a reused ChessMatch.
+//The file is mapped in windows (a single mapping is limited to 2GB) and scanned byte by byte; tag values and move
+//tokens are copied into small reused arrays, so no String is built per game unless a caller asks for a tag.
+//A game that cannot be replayed is counted as malformed and skipped, the stream carries on with the next game.
+public class PgnReader implements Closeable {
+    public static final String WHITE_WINS = "1-0";
+    public static final String BLACK_WINS = "0-1";
+    public static final String DRAW = "1/2-1/2";
+    public static final String UNKNOWN = "*";
+
+    private static final long DEFAULT_WINDOW = 1L << 30;
+    private static final int MAX_TAGS = 64;
+    private static final byte[] START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1".getBytes(StandardCharsets.US_ASCII);
+
+    private FileChannel channel;
+    private long size;
+    private long window;
+    private MappedByteBuffer buffer;
+    private long bufferStart;
+    private long bufferEnd;
+    private long position;
+
+    private ChessMatch chessMatch = ChessMatch.fromFen(new String(START_FEN, StandardCharsets.US_ASCII));
+    private int[] legal = new int[256];
+    private int[] moves = new int[256];
+    private int moveCount;
+    private byte[] token = new byte[32];
+    private int tokenLength;
+    private boolean replay;
+
+    //Without replay the move tokens of a game are kept as written, for copyGame()
+    private byte[] sanBytes = new byte[1024];
+    private int sanLength;
+    private int[] sanEnds = new int[256];
+
+    //Tag names and values of the current game packed one after the other, with their bounds in tagBounds
+    private byte[] tags = new byte[1024];
+    private int tagsLength;
+    private int[] tagBounds = new int[MAX_TAGS * 4];
+    private int tagCount;
+
+    private String result;
+    private String error;
+    private long games;
+    private long malformedGames;
+    private long totalMoves;
+
+    public PgnReader(Path path) throws IOException{
+        this(path, DEFAULT_WINDOW, true);
+    }
+
+    public PgnReader(Path path, long window) throws IOException{
+        this(path, window, true);
+    }
+
+    //window is the size of each mapping, smaller windows mean more remapping but less address space.
+    //With replay off games are only tokenized, so another thread can replay them from copyGame().
+    public PgnReader(Path path, long window, boolean replay) throws IOException{
+        if(window < 4096 || window > Integer.MAX_VALUE){
+            throw new IllegalArgumentException("Window must be between 4KB and 2GB");
+        }
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        size = channel.size();
+        this.window = window;
+        this.replay = replay;
+    }
+
+    //Reads and replays the next game, false at the end of the file. Check isValid() before trusting the moves.
+    public boolean nextGame(){
+        moveCount = 0;
+        sanLength = 0;
+        tagCount = 0;
+        tagsLength = 0;
+        result = null;
+        error = null;
+
+        skipWhitespace();
+        while(peek() == '%' && atLineStart()){
+            skipPast('\n');
+            skipWhitespace();
+        }
+        if(peek() < 0){
+            return false;
+        }
+        while(peek() == '['){
+            readTag();
+            skipWhitespace();
+        }
+        if(replay){
+            setUpPosition();
+        }
+        readMovetext();
+
+        games++;
+        totalMoves += moveCount;
+        if(error != null){
+            malformedGames++;
+        }
+        return true;
+    }
+
+    public boolean isValid(){
+        return error == null;
+    }
+
+    //Why the current game could not be replayed, null when it is valid
+    public String getError(){
+        return error;
+    }
+
+    //Final position of the current game (the position where replay stopped for a malformed game)
+    public ChessMatch getMatch(){
+        return chessMatch;
+    }
+
+    public int getMoveCount(){
+        return moveCount;
+    }
+
+    public int getMove(int index){
+        return moves[index];
+    }
+
+    //Game termination marker from the movetext, one of the constants above, or null if the game had none
+    public String getResult(){
+        return result;
+    }
+
+    //Value of a tag of the current game, built as a String only when asked for; null if the tag is missing
+    public String getTag(String name){
+        int tag = findTag(name);
+        if(tag < 0){
+            return null;
+        }
+        return new String(tags, tagBounds[tag * 4 + 2], tagBounds[tag * 4 + 3] - tagBounds[tag * 4 + 2], StandardCharsets.UTF_8);
+    }
+
+    public long getGames(){
+        return games;
+    }
+
+    public long getMalformedGames(){
+        return malformedGames;
+    }
+
+    public long getTotalMoves(){
+        return totalMoves;
+    }
+
+    public long getBytesRead(){
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException{
+        buffer = null;
+        channel.close();
+    }
+
+    private void setUpPosition(){
+        try{
+            int fen = findTag("FEN");
+            if(fen >= 0){
+                chessMatch.loadFen(tags, tagBounds[fen * 4 + 2], tagBounds[fen * 4 + 3] - tagBounds[fen * 4 + 2]);
+            }else{
+                chessMatch.loadFen(START_FEN, 0, START_FEN.length);
+            }
+        }catch(RuntimeException e){
+            //Whatever a bad FEN tag breaks only fails this game, the stream goes on with the next one
+            fail(e.getMessage());
+        }
+    }
+
+    private void readMovetext(){
+        while(true){
+            skipWhitespace();
+            int c = peek();
+            if(c < 0){
+                return;
+            }
+            //Tags at the start of a line belong to the next game when this one has no result
+            if(c == '[' && atLineStart()){
+                return;
+            }
+            if(c == '{'){
+                skipPast('}');
+            }else if(c == ';' || (c == '%' && atLineStart())){
+                skipPast('\n');
+            }else if(c == '('){
+                skipVariation();
+            }else if(c == '$' || c == ')' || c == '}' || c == '[' || c == ']'){
+                position++;
+                if(c == '$'){
+                    while(isDigit(peek())){
+                        position++;
+                    }
+                }
+            }else{
+                readToken();
+                if(playToken()){
+                    return;
+                }
+            }
+        }
+    }
+
+    //Handles one movetext token, true when it ends the game
+    private boolean playToken(){
+        int start = 0;
+        if(isDigit(token[0])){
+            String termination = termination();
+            if(termination != null){
+                result = termination;
+                return true;
+            }
+            //Move number, possibly glued to its move as in "12.e4"; "0-0" is castling and falls through
+            int digits = 0;
+            while(digits < tokenLength && isDigit(token[digits])){
+                digits++;
+            }
+            if(digits == tokenLength){
+                return false;
+            }
+            if(token[digits] == '.'){
+                start = digits;
+                while(start < tokenLength && token[start] == '.'){
+                    start++;
+                }
+                if(start == tokenLength){
+                    return false;
+                }
+            }
+        }else if(tokenLength == 1 && token[0] == '*'){
+            result = UNKNOWN;
+            return true;
+        }
+        if(error != null){
+            return false;
+        }
+        if(start > 0){
+            System.arraycopy(token, start, token, 0, tokenLength - start);
+            tokenLength -= start;
+        }
+        if(!replay){
+            keepToken();
+            return false;
+        }
+        int move = San.resolve(chessMatch, token, tokenLength, legal);
+        if(move == Move.NONE){
+            fail("Illegal or ambiguous move " + new String(token, 0, tokenLength, StandardCharsets.US_ASCII) + " after " + moveCount + " half moves");
+            return false;
+        }
+        chessMatch.playMove(move);
+        if(moveCount == moves.length){
+            moves = Arrays.copyOf(moves, moveCount * 2);
+        }
+        moves[moveCount++] = move;
+        return false;
+    }
+
+    private void keepToken(){
+        if(sanLength + tokenLength > sanBytes.length){
+            sanBytes = Arrays.copyOf(sanBytes, Math.max(sanBytes.length * 2, sanLength + tokenLength));
+        }
+        if(moveCount == sanEnds.length){
+            sanEnds = Arrays.copyOf(sanEnds, moveCount * 2);
+        }
+        System.arraycopy(token, 0, sanBytes, sanLength, tokenLength);
+        sanLength += tokenLength;
+        sanEnds[moveCount++] = sanLength;
+    }
+
+    //Self-contained copy of the current game as read without replay, safe to hand to another thread
+    PgnGame copyGame(long index){
+        byte[] fen = null;
+        int tag = findTag("FEN");
+        if(tag >= 0){
+            fen = Arrays.copyOfRange(tags, tagBounds[tag * 4 + 2], tagBounds[tag * 4 + 3]);
+        }
+        return new PgnGame(index, fen, Arrays.copyOf(sanBytes, sanLength), Arrays.copyOf(sanEnds, moveCount), result, error);
+    }
+
+    private String termination(){
+        if(matches("1-0")){
+            return WHITE_WINS;
+        }
+        if(matches("0-1")){
+            return BLACK_WINS;
+        }
+        if(matches("1/2-1/2")){
+            return DRAW;
+        }
+        return null;
+    }
+
+    private boolean matches(String text){
+        if(tokenLength != text.length()){
+            return false;
+        }
+        for (int i = 0; i < tokenLength; i++) {
+            if(token[i] != text.charAt(i)){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //[Name "Value"] with \" and \\ escapes in the value; a broken tag makes the game malformed
+    private void readTag(){
+        position++;
+        skipSpaces();
+        int nameStart = tagsLength;
+        while(peek() > ' ' && peek() != '"' && peek() != ']'){
+            appendTag(next());
+        }
+        int nameEnd = tagsLength;
+        skipSpaces();
+        if(peek() != '"'){
+            fail("Malformed tag");
+            skipPast('\n');
+            return;
+        }
+        position++;
+        int valueStart = tagsLength;
+        while(true){
+            int c = next();
+            if(c < 0 || c == '\n'){
+                fail("Unterminated tag value");
+                return;
+            }
+            if(c == '"'){
+                break;
+            }
+            if(c == '\\' && (peek() == '"' || peek() == '\\')){
+                c = next();
+            }
+            appendTag(c);
+        }
+        int valueEnd = tagsLength;
+        skipPast(']');
+        if(tagCount < MAX_TAGS){
+            tagBounds[tagCount * 4] = nameStart;
+            tagBounds[tagCount * 4 + 1] = nameEnd;
+            tagBounds[tagCount * 4 + 2] = valueStart;
+            tagBounds[tagCount * 4 + 3] = valueEnd;
+            tagCount++;
+        }
+    }
+
+    private void appendTag(int c){
+        if(tagsLength == tags.length){
+            tags = Arrays.copyOf(tags, tags.length * 2);
+        }
+        tags[tagsLength++] = (byte)c;
+    }
+
+    private int findTag(String name){
+        for (int tag = 0; tag < tagCount; tag++) {
+            int start = tagBounds[tag * 4];
+            int end = tagBounds[tag * 4 + 1];
+            if(end - start != name.length()){
+                continue;
+            }
+            int i = 0;
+            while(i < name.length() && tags[start + i] == name.charAt(i)){
+                i++;
+            }
+            if(i == name.length()){
+                return tag;
+            }
+        }
+        return -1;
+    }
+
+    //Moves, numbers and results run up to whitespace or a movetext delimiter
+    private void readToken(){
+        tokenLength = 0;
+        int c = peek();
+        while(c > ' ' && c != '{' && c != '}' && c != '(' && c != ')' && c != ';' && c != '[' && c != ']' && c != '$'){
+            if(tokenLength < token.length){
+                token[tokenLength++] = (byte)c;
+            }
+            position++;
+            c = peek();
+        }
+    }
+
+    private void skipVariation(){
+        int depth = 0;
+        while(true){
+            int c = next();
+            if(c < 0){
+                return;
+            }
+            if(c == '{'){
+                skipPast('}');
+            }else if(c == '('){
+                depth++;
+            }else if(c == ')' && --depth == 0){
+                return;
+            }
+        }
+    }
+
+    private void skipPast(int end){
+        int c = next();
+        while(c >= 0 && c != end){
+            c = next();
+        }
+    }
+
+    private void skipWhitespace(){
+        while(peek() >= 0 && peek() <= ' '){
+            position++;
+        }
+    }
+
+    private void skipSpaces(){
+        while(peek() == ' ' || peek() == '\t'){
+            position++;
+        }
+    }
+
+    private boolean atLineStart(){
+        return position == 0 || byteAt(position - 1) == '\n';
+    }
+
+    private void fail(String message){
+        if(error == null){
+            error = message;
+        }
+    }
+
+    private int peek(){
+        return (position < size) ? byteAt(position) : -1;
+    }
+
+    private int next(){
+        return (position < size) ? byteAt(position++) : -1;
+    }
+
+    private int byteAt(long offset){
+        if(offset < bufferStart || offset >= bufferEnd){
+            map(offset);
+        }
+        return buffer.get((int)(offset - bufferStart)) & 0xFF;
+    }
+
+    //Maps the window that starts a little before offset, so looking back one byte does not remap
+    private void map(long offset){
+        long start = Math.max(0L, offset - 1);
+        long length = Math.min(window, size - start);
+        try{
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        }catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+        bufferStart = start;
+        bufferEnd = start + length;
+    }
+
+    private static boolean isDigit(int c){
+        return c >= '0' && c <= '9';
+    }
+
+    //Usage: pgn.PgnReader <file> [window <mb>]
+    public static void main(String[] args) throws IOException{
+        if(args.length < 1){
+            System.out.println("Usage: pgn.PgnReader <file> [window <mb>]");
+            return;
+        }
+        long window = DEFAULT_WINDOW;
+        for (int i = 1; i < args.length; i++) {
+            if(args[i].equals("window")){
+                window = Long.parseLong(args[++i]) << 20;
+            }else{
+                throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        long start = System.nanoTime();
+        try(PgnReader reader = new PgnReader(Path.of(args[0]), window)){
+            while(reader.nextGame()){
+                if(!reader.isValid()){
+                    System.out.println("Game " + reader.getGames() + ": " + reader.getError());
+                }
+            }
+            double seconds = Math.max(1L, System.nanoTime() - start) / 1e9;
+            System.out.println("Games: " + reader.getGames() + " (" + reader.getMalformedGames() + " malformed)");
+            System.out.println("Moves: " + reader.getTotalMoves());
+            System.out.printf("Time: %.3f s%n", seconds);
+            System.out.printf("Games per second: %.0f%n", reader.getGames() / seconds);
+            System.out.printf("Moves per second: %.0f%n", reader.getTotalMoves() / seconds);
+            System.out.printf("Throughput: %.1f MB/s%n", reader.getBytesRead() / seconds / (1 << 20));
+        }
+    }
+}
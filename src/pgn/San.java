@@ -0,0 +1,120 @@
+package pgn;
+
+import chess.ChessBoard;
+import chess.ChessMatch;
+import chess.Move;
+import chess.PieceType;
+
+//Standard Algebraic Notation resolved against the legal moves of the current position.
+//Check, mate and annotation suffixes are ignored here; "0-0" is accepted for "O-O".
+public final class San {
+    private static final PieceType[] TYPES = PieceType.values();
+
+    private San(){
+    }
+
+    //Legal move written as san[0, length) or Move.NONE when it is illegal, ambiguous or not SAN at all
+    public static int resolve(ChessMatch chessMatch, byte[] san, int length, int[] legal){
+        return resolve(chessMatch, san, 0, length, legal);
+    }
+
+    public static int resolve(ChessMatch chessMatch, byte[] san, int offset, int length, int[] legal){
+        int end = offset + length;
+        while(end > offset && (san[end - 1] == '+' || san[end - 1] == '#' || san[end - 1] == '!' || san[end - 1] == '?')){
+            end--;
+        }
+        if(end - offset < 2){
+            return Move.NONE;
+        }
+        ChessBoard board = chessMatch.getBoard();
+
+        //#Special move castling, the king moves two files
+        if(san[offset] == 'O' || san[offset] == '0'){
+            byte o = san[offset];
+            boolean kingSide;
+            if(end - offset == 3 && san[offset + 1] == '-' && san[offset + 2] == o){
+                kingSide = true;
+            }else if(end - offset == 5 && san[offset + 1] == '-' && san[offset + 2] == o && san[offset + 3] == '-' && san[offset + 4] == o){
+                kingSide = false;
+            }else{
+                return Move.NONE;
+            }
+            int count = chessMatch.legalMoves(legal);
+            for (int i = 0; i < count; i++) {
+                int from = Move.from(legal[i]);
+                int to = Move.to(legal[i]);
+                if(board.pieceAt(from).getType() == PieceType.KING && to - from == (kingSide ? 2 : -2)){
+                    return legal[i];
+                }
+            }
+            return Move.NONE;
+        }
+
+        int start = offset;
+        PieceType type = PieceType.PAWN;
+        int letter = pieceLetter(san[offset]);
+        if(letter >= 0){
+            type = TYPES[letter];
+            start++;
+        }
+
+        //Promotion, "=Q" or a bare "Q" after the target square
+        PieceType promotion = null;
+        letter = pieceLetter(san[end - 1]);
+        if(letter > 0 && letter < PieceType.KING.ordinal()){
+            promotion = TYPES[letter];
+            end--;
+            if(end > start && san[end - 1] == '='){
+                end--;
+            }
+        }
+        if(end - start < 2 || !isFile(san[end - 2]) || !isRank(san[end - 1])){
+            return Move.NONE;
+        }
+        int to = ChessBoard.square('8' - san[end - 1], san[end - 2] - 'a');
+
+        //Whatever sits between the piece and the target narrows the source down
+        int fromColumn = -1;
+        int fromRow = -1;
+        for (int i = start; i < end - 2; i++) {
+            if(isFile(san[i])){
+                fromColumn = san[i] - 'a';
+            }else if(isRank(san[i])){
+                fromRow = '8' - san[i];
+            }else if(san[i] != 'x' && san[i] != ':' && san[i] != '-'){
+                return Move.NONE;
+            }
+        }
+
+        int found = Move.NONE;
+        int count = chessMatch.legalMovesTo(to, legal);
+        for (int i = 0; i < count; i++) {
+            int move = legal[i];
+            int from = Move.from(move);
+            if(board.pieceAt(from).getType() != type || Move.promotion(move) != promotion){
+                continue;
+            }
+            if((fromColumn >= 0 && from % 8 != fromColumn) || (fromRow >= 0 && from / 8 != fromRow)){
+                continue;
+            }
+            if(found != Move.NONE){
+                return Move.NONE;
+            }
+            found = move;
+        }
+        return found;
+    }
+
+    //PieceType ordinal of an upper case piece letter, -1 otherwise
+    private static int pieceLetter(byte c){
+        return "PNBRQK".indexOf(c);
+    }
+
+    private static boolean isFile(byte c){
+        return c >= 'a' && c <= 'h';
+    }
+
+    private static boolean isRank(byte c){
+        return c >= '1' && c <= '8';
+    }
+}
@@ -0,0 +1,181 @@
+package server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+
+import chess.ChessException;
+import chess.ChessMatch;
+
+//Headless host for many matches at once over a line protocol on a local TCP port. Each connection gets its own
+//thread (a virtual one where the runtime has them) and may drive any number of matches; matches live in a
+//sharded registry and lock individually. Requests and replies are one line each:
+//  create [960 | fen <fen>]   ok <id>
+//  move <id> <move>           ok <status>         (move in coordinate notation, e.g. e2e4 or e7e8q; a move that
+//                                                  ends the game removes the match)
+//  state <id>                 ok <status> <fen>
+//  resign <id>                ok <color> resigned (the match is then removed)
+//  quit                       closes the connection
+//Status is one of active, check, checkmate, stalemate, repetition and fifty-moves. A request that fails is answered with error <reason>.
+public class GameServer implements Closeable {
+    private ServerSocket serverSocket;
+    private MatchRegistry registry;
+    private ExecutorService connections;
+    private Thread acceptor;
+
+    //Port 0 picks a free port, see getPort()
+    public GameServer(int port, int shards) throws IOException{
+        registry = new MatchRegistry(shards);
+        serverSocket = new ServerSocket(port, 1024, InetAddress.getLoopbackAddress());
+        connections = Threads.perTask("game-connection");
+        acceptor = new Thread(this::accept, "game-acceptor");
+        acceptor.start();
+    }
+
+    public int getPort(){
+        return serverSocket.getLocalPort();
+    }
+
+    public int getMatchCount(){
+        return registry.size();
+    }
+
+    @Override
+    public void close() throws IOException{
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+
+    private void accept(){
+        while(!serverSocket.isClosed()){
+            try{
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.execute(() -> serve(socket));
+            }catch(IOException e){
+                if(!serverSocket.isClosed()){
+                    System.err.println("Accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket){
+        try(socket;
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII))){
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                line = line.trim();
+                if(line.equals("quit")){
+                    break;
+                }
+                if(line.isEmpty()){
+                    continue;
+                }
+                out.write(handle(line));
+                out.write('\n');
+                out.flush();
+            }
+        }catch(SocketException e){
+            //The client went away
+        }catch(IOException e){
+            System.err.println("Connection failed: " + e.getMessage());
+        }
+    }
+
+    String handle(String line){
+        String[] words = line.split(" +", 3);
+        try{
+            switch(words[0]){
+                case "create":
+                    return create(words);
+                case "move":
+                    if(words.length < 3){
+                        return "error usage: move <id> <move>";
+                    }
+                    return move(find(words[1]), words[2]);
+                case "state":
+                    if(words.length < 2){
+                        return "error usage: state <id>";
+                    }
+                    return find(words[1]).state();
+                case "resign":
+                    if(words.length < 2){
+                        return "error usage: resign <id>";
+                    }
+                    HostedMatch match = find(words[1]);
+                    String reply = match.resign();
+                    registry.remove(match.getId());
+                    return reply;
+                default:
+                    return "error unknown command: " + words[0];
+            }
+        }catch(IllegalArgumentException | ChessException e){
+            return "error " + e.getMessage();
+        }
+    }
+
+    //A move that ends the game is the last one a match answers, so the match is removed like a resigned one
+    private String move(HostedMatch match, String text){
+        String reply = match.move(text);
+        if(reply.startsWith("ok ") && HostedMatch.isOver(reply.substring(3))){
+            registry.remove(match.getId());
+        }
+        return reply;
+    }
+
+    private String create(String[] words){
+        ChessMatch chessMatch;
+        if(words.length == 1){
+            chessMatch = new ChessMatch("N");
+        }else if(words[1].equals("960")){
+            chessMatch = new ChessMatch("Y");
+        }else if(words[1].equals("fen") && words.length == 3){
+            chessMatch = ChessMatch.fromFen(words[2]);
+        }else{
+            return "error usage: create [960 | fen <fen>]";
+        }
+        return "ok " + registry.create(chessMatch).getId();
+    }
+
+    private HostedMatch find(String id){
+        HostedMatch match;
+        try{
+            match = registry.get(Long.parseLong(id));
+        }catch(NumberFormatException e){
+            throw new IllegalArgumentException("bad match id: " + id);
+        }
+        if(match == null){
+            throw new IllegalArgumentException("no match " + id);
+        }
+        return match;
+    }
+
+    //Usage: server.GameServer [port <port>] [shards <n>]
+    public static void main(String[] args) throws IOException, InterruptedException{
+        int port = 7878;
+        int shards = 64;
+        for (int i = 0; i < args.length; i++) {
+            if(args[i].equals("port")){
+                port = Integer.parseInt(args[++i]);
+            }else if(args[i].equals("shards")){
+                shards = Integer.parseInt(args[++i]);
+            }else{
+                throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        GameServer server = new GameServer(port, shards);
+        System.out.println("Listening on localhost:" + server.getPort() + " with " + (Threads.virtual() ? "virtual" : "platform") + " threads");
+        server.acceptor.join();
+    }
+}
@@ -0,0 +1,92 @@
+package server;
+
+import chess.ChessMatch;
+import chess.Color;
+import chess.Move;
+import chess.PositionSnapshot;
+
+//One match of the server. Every request on it runs under the match's own lock, so requests on different
+//matches never wait for each other.
+final class HostedMatch {
+    static final String ACTIVE = "active";
+    static final String CHECK = "check";
+    static final String CHECKMATE = "checkmate";
+    static final String STALEMATE = "stalemate";
+    static final String REPETITION = "repetition";
+    static final String FIFTY_MOVES = "fifty-moves";
+    static final String RESIGNED = "resigned";
+
+    private final long id;
+    private final ChessMatch chessMatch;
+    private final int[] legal = new int[256];
+    private String status = ACTIVE;
+
+    HostedMatch(long id, ChessMatch chessMatch){
+        this.id = id;
+        this.chessMatch = chessMatch;
+        updateStatus();
+    }
+
+    long getId(){
+        return id;
+    }
+
+    //Plays a move in coordinate notation and answers with the new status
+    synchronized String move(String text){
+        if(isOver()){
+            return "error game over: " + status;
+        }
+        int move = Move.fromString(text);
+        int count = chessMatch.legalMoves(legal);
+        for (int i = 0; i < count; i++) {
+            if(legal[i] == move){
+                chessMatch.playMove(move);
+                updateStatus();
+                return "ok " + status;
+            }
+        }
+        return "error illegal move: " + text;
+    }
+
+    //Only the snapshot is taken under the lock, spectators writing out the FEN do not hold up the players
+    String state(){
+        String current;
+        PositionSnapshot snapshot;
+        synchronized(this){
+            current = status;
+            snapshot = chessMatch.snapshot();
+        }
+        return "ok " + current + " " + snapshot.toFen();
+    }
+
+    synchronized String resign(){
+        if(isOver()){
+            return "error game over: " + status;
+        }
+        Color loser = chessMatch.getCurrentPlayer();
+        status = RESIGNED;
+        return "ok " + loser.toString().toLowerCase() + " resigned";
+    }
+
+    private boolean isOver(){
+        return isOver(status);
+    }
+
+    static boolean isOver(String status){
+        return status.equals(CHECKMATE) || status.equals(STALEMATE) || status.equals(REPETITION) || status.equals(FIFTY_MOVES) || status.equals(RESIGNED);
+    }
+
+    private void updateStatus(){
+        boolean canMove = chessMatch.legalMoves(legal) > 0;
+        if(chessMatch.getCheck()){
+            status = canMove ? CHECK : CHECKMATE;
+        }else{
+            status = canMove ? ACTIVE : STALEMATE;
+        }
+        if(canMove && chessMatch.getThreefoldRepetition()){
+            status = REPETITION;
+        }else if(canMove && chessMatch.getHalfmoveClock() >= 100){
+            status = FIFTY_MOVES;
+        }
+    }
+}
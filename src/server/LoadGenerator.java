@@ -0,0 +1,186 @@
+package server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import chess.ChessMatch;
+import chess.Move;
+import util.LatencyHistogram;
+
+//Drives a GameServer with random games. Each client opens one connection, keeps a number of matches going at
+//once and plays a random legal move in each in turn, timing every move request from send to reply. Finished
+//games are replaced, games that reach the ply limit are resigned and replaced, so the number of live matches
+//stays at clients * matches. Without a port an in-process server on a free localhost port is used.
+public class LoadGenerator {
+    private static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static class Client implements Callable<Client> {
+        private String host;
+        private int port;
+        private long deadline;
+        private int maxPlies;
+        private long[] ids;
+        private ChessMatch[] mirrors;
+        private int[] plies;
+        private int[] legal = new int[256];
+        private SplittableRandom random;
+        private BufferedReader in;
+        private Writer out;
+        private LatencyHistogram latency = new LatencyHistogram();
+        private long moves;
+        private long games;
+
+        Client(String host, int port, int matches, long deadline, int maxPlies, long seed){
+            this.host = host;
+            this.port = port;
+            this.deadline = deadline;
+            this.maxPlies = maxPlies;
+            ids = new long[matches];
+            mirrors = new ChessMatch[matches];
+            plies = new int[matches];
+            random = new SplittableRandom(seed);
+        }
+
+        @Override
+        public Client call() throws IOException{
+            try(Socket socket = new Socket(host, port)){
+                socket.setTcpNoDelay(true);
+                in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+                out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+                for (int i = 0; i < ids.length; i++) {
+                    mirrors[i] = ChessMatch.fromFen(START_FEN);
+                    ids[i] = create();
+                }
+                while(System.currentTimeMillis() < deadline){
+                    for (int i = 0; i < ids.length; i++) {
+                        step(i);
+                    }
+                }
+                out.write("quit\n");
+                out.flush();
+            }
+            return this;
+        }
+
+        private void step(int i) throws IOException{
+            int count = mirrors[i].legalMoves(legal);
+            int move = legal[random.nextInt(count)];
+            long start = System.nanoTime();
+            String reply = request("move " + ids[i] + " " + Move.toString(move));
+            latency.record(System.nanoTime() - start);
+            if(!reply.startsWith("ok ")){
+                throw new IllegalStateException("Move " + Move.toString(move) + " refused: " + reply);
+            }
+            mirrors[i].playMove(move);
+            moves++;
+            plies[i]++;
+            boolean over = HostedMatch.isOver(reply.substring(3));
+            if(over || plies[i] >= maxPlies){
+                //A finished match is already gone from the server, only one cut off at the ply limit is resigned
+                if(!over){
+                    request("resign " + ids[i]);
+                }
+                mirrors[i].loadFen(START_FEN);
+                plies[i] = 0;
+                ids[i] = create();
+                games++;
+            }
+        }
+
+        private long create() throws IOException{
+            String reply = request("create");
+            if(!reply.startsWith("ok ")){
+                throw new IllegalStateException("Create refused: " + reply);
+            }
+            return Long.parseLong(reply.substring(3));
+        }
+
+        private String request(String line) throws IOException{
+            out.write(line);
+            out.write('\n');
+            out.flush();
+            String reply = in.readLine();
+            if(reply == null){
+                throw new IOException("The server closed the connection");
+            }
+            return reply;
+        }
+    }
+
+    //Usage: server.LoadGenerator [host <host>] [port <port>] [clients <n>] [matches <n>] [seconds <s>] [plies <n>]
+    public static void main(String[] args) throws Exception{
+        String host = "localhost";
+        int port = 0;
+        int clients = 32;
+        int matches = 100;
+        int seconds = 10;
+        int maxPlies = 200;
+        for (int i = 0; i < args.length; i++) {
+            if(args[i].equals("host")){
+                host = args[++i];
+            }else if(args[i].equals("port")){
+                port = Integer.parseInt(args[++i]);
+            }else if(args[i].equals("clients")){
+                clients = Integer.parseInt(args[++i]);
+            }else if(args[i].equals("matches")){
+                matches = Integer.parseInt(args[++i]);
+            }else if(args[i].equals("seconds")){
+                seconds = Integer.parseInt(args[++i]);
+            }else if(args[i].equals("plies")){
+                maxPlies = Integer.parseInt(args[++i]);
+            }else{
+                throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        GameServer embedded = (port == 0) ? new GameServer(0, 64) : null;
+        if(embedded != null){
+            port = embedded.getPort();
+        }
+        ExecutorService pool = Threads.perTask("load-client");
+        long start = System.currentTimeMillis();
+        long deadline = start + seconds * 1000L;
+        List<Future<Client>> futures = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            futures.add(pool.submit(new Client(host, port, matches, deadline, maxPlies, i)));
+        }
+
+        LatencyHistogram latency = new LatencyHistogram();
+        long moves = 0;
+        long games = 0;
+        try{
+            for (Future<Client> future : futures) {
+                Client client = future.get();
+                latency.add(client.latency);
+                moves += client.moves;
+                games += client.games;
+            }
+        }catch(ExecutionException e){
+            throw new IllegalStateException("A client failed", e.getCause());
+        }finally{
+            pool.shutdownNow();
+            if(embedded != null){
+                embedded.close();
+            }
+        }
+        double elapsed = Math.max(1L, System.currentTimeMillis() - start) / 1000.0;
+        System.out.println("Clients: " + clients + " on " + (Threads.virtual() ? "virtual" : "platform") + " threads");
+        System.out.println("Concurrent matches: " + clients * matches);
+        System.out.println("Moves: " + moves + " (" + games + " games finished)");
+        System.out.printf("Moves per second: %.0f%n", moves / elapsed);
+        System.out.println("Move latency: " + latency);
+    }
+}
@@ -0,0 +1,66 @@
+package server;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import chess.ChessMatch;
+
+//Hosted matches by id, split over shards that each have their own lock. Ids are handed out in sequence and
+//shard = id mod shards, so consecutive matches land on different shards and lookups of unrelated matches
+//do not wait for each other.
+final class MatchRegistry {
+    private final Shard[] shards;
+    private final AtomicLong ids = new AtomicLong();
+
+    private static class Shard {
+        private final HashMap<Long, HostedMatch> matches = new HashMap<>();
+    }
+
+    MatchRegistry(int shards){
+        if(shards < 1 || Integer.bitCount(shards) != 1){
+            throw new IllegalArgumentException("The shard count must be a power of two");
+        }
+        this.shards = new Shard[shards];
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new Shard();
+        }
+    }
+
+    HostedMatch create(ChessMatch chessMatch){
+        HostedMatch match = new HostedMatch(ids.incrementAndGet(), chessMatch);
+        Shard shard = shard(match.getId());
+        synchronized(shard){
+            shard.matches.put(match.getId(), match);
+        }
+        return match;
+    }
+
+    //null if there is no such match
+    HostedMatch get(long id){
+        Shard shard = shard(id);
+        synchronized(shard){
+            return shard.matches.get(id);
+        }
+    }
+
+    HostedMatch remove(long id){
+        Shard shard = shard(id);
+        synchronized(shard){
+            return shard.matches.remove(id);
+        }
+    }
+
+    int size(){
+        int size = 0;
+        for (Shard shard : shards) {
+            synchronized(shard){
+                size += shard.matches.size();
+            }
+        }
+        return size;
+    }
+
+    private Shard shard(long id){
+        return shards[(int)(id & (shards.length - 1))];
+    }
+}
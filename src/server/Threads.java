@@ -0,0 +1,33 @@
+package server;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+//Executors that start one thread per task. On a runtime with virtual threads (Java 21 and later) those are used,
+//found by reflection so the code still builds and runs on older runtimes, which get a cached pool of daemon
+//platform threads instead.
+final class Threads {
+    private Threads(){
+    }
+
+    static ExecutorService perTask(String name){
+        try{
+            return (ExecutorService)Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }catch(ReflectiveOperationException e){
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    static boolean virtual(){
+        try{
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        }catch(NoSuchMethodException e){
+            return false;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package tablebase;
+
+import chess.Color;
+import chess.PieceType;
+
+//The pieces one table covers and how its positions are numbered. A table is named after its material with the
+//stronger side first and playing white, e.g. KQKR; positions with the colours the other way round are probed
+//with the board mirrored. Slot 0 holds the white king, slot 1 the black king, then the other white pieces and
+//the other black pieces in QRBNP order.
+//Index = ((side to move * king squares + white king) * 64 + black king) * 64 ... + last piece. Every position is
+//first moved by a board symmetry so the white king lands in a1-d1-d4 (10 squares) or, when there are pawns and
+//only the left-right mirror is allowed, in files a-d (32 squares).
+final class Material {
+    static final int MAX_PIECES = 4;
+    static final int KEYS = 59049;
+
+    private static final String LETTERS = "PNBRQK";
+    private static final PieceType[] ORDER = {PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP, PieceType.KNIGHT, PieceType.PAWN};
+    private static final int[] VALUES = {1, 3, 3, 5, 9, 0};
+    private static final int[] TRIANGLE = new int[64];
+    private static final int[] TRIANGLE_SQUARES = new int[10];
+    private static final int[] TRIANGLE_TRANSFORM = new int[64];
+    private static final int[] HALF = new int[64];
+    //Mirror in the a1-h8 diagonal, which keeps the a1-d1-d4 triangle in place
+    private static final int DIAGONAL = 7;
+
+    static {
+        //a1-d1-d4: rank 1-4 and file a-d, on or below the a1-d4 diagonal (row 7 is rank 1 here)
+        int count = 0;
+        for (int square = 0; square < 64; square++) {
+            int row = square >> 3;
+            int col = square & 7;
+            TRIANGLE[square] = -1;
+            if(row >= 4 && col <= 3 && row + col >= 7){
+                TRIANGLE_SQUARES[count] = square;
+                TRIANGLE[square] = count++;
+            }
+        }
+        for (int square = 0; square < 64; square++) {
+            for (int transform = 0; transform < 8; transform++) {
+                if(TRIANGLE[transform(transform, square)] >= 0){
+                    TRIANGLE_TRANSFORM[square] = transform;
+                    break;
+                }
+            }
+            HALF[square] = (square >> 3) * 4 + Math.min(square & 7, 7 - (square & 7));
+        }
+    }
+
+    private String name;
+    private PieceType[] types;
+    private Color[] colors;
+    private boolean pawns;
+    private int kingSquares;
+    private int size;
+
+    private Material(String white, String black){
+        name = white + black;
+        int pieces = name.length();
+        if(pieces > MAX_PIECES){
+            throw new IllegalArgumentException("Tables cover at most " + MAX_PIECES + " pieces: " + name);
+        }
+        types = new PieceType[pieces];
+        colors = new Color[pieces];
+        types[0] = PieceType.KING;
+        colors[0] = Color.WHITE;
+        types[1] = PieceType.KING;
+        colors[1] = Color.BLACK;
+        int slot = 2;
+        for (int i = 1; i < white.length(); i++, slot++) {
+            types[slot] = PieceType.values()[LETTERS.indexOf(white.charAt(i))];
+            colors[slot] = Color.WHITE;
+        }
+        for (int i = 1; i < black.length(); i++, slot++) {
+            types[slot] = PieceType.values()[LETTERS.indexOf(black.charAt(i))];
+            colors[slot] = Color.BLACK;
+        }
+        for (PieceType type : types) {
+            pawns |= type == PieceType.PAWN;
+        }
+        kingSquares = pawns ? 32 : 10;
+        size = 2 * kingSquares * 64;
+        for (int i = 2; i < pieces; i++) {
+            size *= 64;
+        }
+    }
+
+    //Parses a name such as KQKR or KRKQ; the sides are sorted and the stronger one put first
+    static Material of(String name){
+        int split = name.indexOf('K', 1);
+        if(!name.startsWith("K") || split < 0){
+            throw new IllegalArgumentException("A table name has two kings: " + name);
+        }
+        String white = side(name.substring(0, split), name);
+        String black = side(name.substring(split), name);
+        return (compareSides(white, black) >= 0) ? new Material(white, black) : new Material(black, white);
+    }
+
+    private static String side(String side, String name){
+        StringBuilder sb = new StringBuilder("K");
+        for (PieceType type : ORDER) {
+            for (int i = 1; i < side.length(); i++) {
+                int letter = LETTERS.indexOf(side.charAt(i));
+                if(letter < 0 || letter == PieceType.KING.ordinal()){
+                    throw new IllegalArgumentException("Unknown piece " + side.charAt(i) + " in " + name);
+                }
+                if(letter == type.ordinal()){
+                    sb.append(side.charAt(i));
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int compareSides(String a, String b){
+        int value = 0;
+        for (int i = 1; i < a.length(); i++) {
+            value += VALUES[LETTERS.indexOf(a.charAt(i))];
+        }
+        for (int i = 1; i < b.length(); i++) {
+            value -= VALUES[LETTERS.indexOf(b.charAt(i))];
+        }
+        if(value != 0){
+            return value;
+        }
+        if(a.length() != b.length()){
+            return a.length() - b.length();
+        }
+        //Same value and count: the side whose pieces come first in QRBNP order
+        for (int i = 1; i < a.length(); i++) {
+            int c = LETTERS.indexOf(a.charAt(i)) - LETTERS.indexOf(b.charAt(i));
+            if(c != 0){
+                return c;
+            }
+        }
+        return 0;
+    }
+
+    static String letter(PieceType type){
+        return String.valueOf(LETTERS.charAt(type.ordinal()));
+    }
+
+    //Key of a set of pieces (kings not counted), counts per colour and type in base 3, or -1 if a count is
+    //above 2. The key of a table and of its colour-swapped material differ unless both sides are equal.
+    static int key(int[] counts){
+        int key = 0;
+        for (int i = counts.length - 1; i >= 0; i--) {
+            if(counts[i] > 2){
+                return -1;
+            }
+            key = key * 3 + counts[i];
+        }
+        return key;
+    }
+
+    //Index into counts for key(): colour ordinal * 5 + type ordinal
+    static int countIndex(Color color, PieceType type){
+        return color.ordinal() * 5 + type.ordinal();
+    }
+
+    //Key of this material with white and black as in the name, or swapped
+    int key(boolean swapped){
+        int[] counts = new int[10];
+        for (int i = 2; i < types.length; i++) {
+            Color color = swapped ? opponent(colors[i]) : colors[i];
+            counts[countIndex(color, types[i])]++;
+        }
+        return key(counts);
+    }
+
+    String getName(){
+        return name;
+    }
+
+    int getPieces(){
+        return types.length;
+    }
+
+    PieceType getType(int slot){
+        return types[slot];
+    }
+
+    Color getColor(int slot){
+        return colors[slot];
+    }
+
+    boolean hasPawns(){
+        return pawns;
+    }
+
+    int getSize(){
+        return size;
+    }
+
+    //Index of the position with the pieces of each slot on squares, for the given side to move. With the white
+    //king on the a1-d4 diagonal the position and its mirror image in that diagonal both qualify, the smaller
+    //index is the one used.
+    int index(int[] squares, Color sideToMove){
+        int whiteKing = squares[0];
+        if(pawns){
+            return index(squares, sideToMove, HALF[whiteKing], ((whiteKing & 7) >= 4) ? 1 : 0, 0);
+        }
+        int transform = TRIANGLE_TRANSFORM[whiteKing];
+        int king = transform(transform, whiteKing);
+        int index = index(squares, sideToMove, TRIANGLE[king], transform, 0);
+        if((king >> 3) + (king & 7) == 7){
+            index = Math.min(index, index(squares, sideToMove, TRIANGLE[king], transform, DIAGONAL));
+        }
+        return index;
+    }
+
+    //Squares are moved by transform and then by second
+    private int index(int[] squares, Color sideToMove, int king, int transform, int second){
+        int index = sideToMove.ordinal() * kingSquares + king;
+        for (int i = 1; i < types.length; i++) {
+            index = index * 64 + transform(second, transform(transform, squares[i]));
+        }
+        return index;
+    }
+
+    //Fills squares with the position of an index and returns its side to move
+    Color decode(int index, int[] squares){
+        for (int i = types.length - 1; i >= 1; i--) {
+            squares[i] = index & 63;
+            index >>>= 6;
+        }
+        int king = index % kingSquares;
+        squares[0] = pawns ? (king / 4) * 8 + king % 4 : TRIANGLE_SQUARES[king];
+        return (index / kingSquares == Color.WHITE.ordinal()) ? Color.WHITE : Color.BLACK;
+    }
+
+    //Board symmetry number transform: bit 2 transposes rows and columns, bit 0 mirrors files, bit 1 mirrors ranks
+    private static int transform(int transform, int square){
+        if((transform & 4) != 0){
+            square = ((square & 7) << 3) | (square >> 3);
+        }
+        if((transform & 1) != 0){
+            square ^= 7;
+        }
+        if((transform & 2) != 0){
+            square ^= 56;
+        }
+        return square;
+    }
+
+    static Color opponent(Color color){
+        return (color == Color.WHITE) ? Color.BLACK : Color.WHITE;
+    }
+}
@@ -0,0 +1,30 @@
+package tablebase;
+
+import chess.Color;
+import chess.PieceType;
+
+//Scratch description of a position with few pieces, filled by the caller and turned into a table index by
+//Tablebase. One per thread, nothing in it is kept between lookups.
+final class TablePosition {
+    int count;
+    final int[] squares = new int[Material.MAX_PIECES];
+    final PieceType[] types = new PieceType[Material.MAX_PIECES];
+    final Color[] colors = new Color[Material.MAX_PIECES];
+    Color sideToMove;
+
+    final int[] counts = new int[10];
+    final int[] slots = new int[Material.MAX_PIECES];
+    final boolean[] used = new boolean[Material.MAX_PIECES];
+
+    void clear(Color sideToMove){
+        count = 0;
+        this.sideToMove = sideToMove;
+    }
+
+    void add(int square, PieceType type, Color color){
+        squares[count] = square;
+        types[count] = type;
+        colors[count] = color;
+        count++;
+    }
+}
@@ -0,0 +1,165 @@
+package tablebase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import chess.Attacks;
+import chess.ChessBoard;
+import chess.ChessMatch;
+import chess.Color;
+import chess.PieceType;
+
+//Endgame tables built by TablebaseGenerator: one byte per position holding win, draw or loss and the distance to
+//mate in plies. Every <material>.tb file of a directory is mapped read-only when the Tablebase is opened, so
+//probes are thread safe and allocate nothing. Tables assume no castling rights and no en passant capture.
+public class Tablebase {
+    public static final int NOT_FOUND = -1;
+    public static final int LOSS = -1;
+    public static final int DRAW = 0;
+    public static final int WIN = 1;
+
+    static final String EXTENSION = ".tb";
+    static final int MAGIC = 0x43544231;
+    static final int HEADER_SIZE = 8;
+
+    //Position values: 0 draw, 1 not a legal position, 2 + d mate in d plies, lost for the side to move when d is
+    //even (d = 0 is checkmate) and won when d is odd
+    static final int VALUE_DRAW = 0;
+    static final int VALUE_ILLEGAL = 1;
+    static final int VALUE_DECIDED = 2;
+
+    private static final PieceType[] TYPES = PieceType.values();
+
+    private Material[] materials = new Material[Material.KEYS];
+    private ByteBuffer[] values = new ByteBuffer[Material.KEYS];
+    private boolean[] swapped = new boolean[Material.KEYS];
+    private int maxPieces = 2;
+    private ThreadLocal<TablePosition> positions = ThreadLocal.withInitial(TablePosition::new);
+
+    Tablebase(){
+    }
+
+    //Maps every table of the directory; a missing directory gives an empty tablebase
+    public Tablebase(Path directory) throws IOException{
+        if(!Files.isDirectory(directory)){
+            return;
+        }
+        try(DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + EXTENSION)){
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                Material material = Material.of(name.substring(0, name.length() - EXTENSION.length()));
+                try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+                    if(channel.size() != HEADER_SIZE + (long)material.getSize()){
+                        throw new IOException("Wrong size for a " + material.getName() + " table: " + file);
+                    }
+                    ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    if(mapped.getInt(0) != MAGIC || mapped.getInt(4) != material.getSize()){
+                        throw new IOException("Not a tablebase file: " + file);
+                    }
+                    add(material, mapped.position(HEADER_SIZE).slice());
+                }
+            }
+        }
+    }
+
+    void add(Material material, ByteBuffer table){
+        for (int swap = 0; swap < 2; swap++) {
+            int key = material.key(swap == 1);
+            materials[key] = material;
+            values[key] = table;
+            swapped[key] = swap == 1 && key != material.key(false);
+        }
+        maxPieces = Math.max(maxPieces, material.getPieces());
+    }
+
+    boolean contains(Material material){
+        return materials[material.key(false)] != null;
+    }
+
+    //Most pieces, kings included, of any loaded table; positions with more pieces are never found
+    public int getMaxPieces(){
+        return maxPieces;
+    }
+
+    //Value of the current position for the side to move, read with wdl() and distance(), or NOT_FOUND when no table
+    //covers it (too many pieces, a missing table, castling rights or an en passant capture)
+    public int probe(ChessMatch chessMatch){
+        ChessBoard board = chessMatch.getBoard();
+        if(Long.bitCount(board.getOccupied()) > maxPieces || chessMatch.getCastlingRights() != 0){
+            return NOT_FOUND;
+        }
+        Color side = chessMatch.getCurrentPlayer();
+        int enPassant = chessMatch.getEnPassantSquare();
+        if(enPassant >= 0 && (Attacks.pawn(Material.opponent(side), enPassant) & board.getPieces(PieceType.PAWN, side)) != 0L){
+            return NOT_FOUND;
+        }
+        TablePosition position = positions.get();
+        position.clear(side);
+        for (int color = 0; color < 2; color++) {
+            for (int type = 0; type < TYPES.length; type++) {
+                long pieces = board.getPieces(TYPES[type], (color == 0) ? Color.BLACK : Color.WHITE);
+                while(pieces != 0L){
+                    position.add(Long.numberOfTrailingZeros(pieces), TYPES[type], (color == 0) ? Color.BLACK : Color.WHITE);
+                    pieces &= pieces - 1;
+                }
+            }
+        }
+        int value = value(position);
+        return (value == VALUE_ILLEGAL) ? NOT_FOUND : value;
+    }
+
+    public static int wdl(int result){
+        if(result < VALUE_DECIDED){
+            return DRAW;
+        }
+        return ((result - VALUE_DECIDED) % 2 == 0) ? LOSS : WIN;
+    }
+
+    //Plies to mate with best play for a won or lost position, 0 for a draw
+    public static int distance(int result){
+        return (result < VALUE_DECIDED) ? 0 : result - VALUE_DECIDED;
+    }
+
+    //Raw value of a position, VALUE_ILLEGAL when no table covers it. Bare kings are a draw without a table.
+    int value(TablePosition position){
+        int[] counts = position.counts;
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < position.count; i++) {
+            if(position.types[i] != PieceType.KING){
+                counts[Material.countIndex(position.colors[i], position.types[i])]++;
+            }
+        }
+        int key = Material.key(counts);
+        if(key == 0){
+            return VALUE_DRAW;
+        }
+        if(key < 0 || materials[key] == null){
+            return VALUE_ILLEGAL;
+        }
+        Material material = materials[key];
+        boolean swap = swapped[key];
+
+        //Give every slot of the table one of the pieces, mirrored when the colours are the other way round
+        int[] slots = position.slots;
+        boolean[] used = position.used;
+        Arrays.fill(used, false);
+        for (int slot = 0; slot < material.getPieces(); slot++) {
+            Color color = swap ? Material.opponent(material.getColor(slot)) : material.getColor(slot);
+            for (int i = 0; i < position.count; i++) {
+                if(!used[i] && position.types[i] == material.getType(slot) && position.colors[i] == color){
+                    used[i] = true;
+                    slots[slot] = swap ? position.squares[i] ^ 56 : position.squares[i];
+                    break;
+                }
+            }
+        }
+        Color side = swap ? Material.opponent(position.sideToMove) : position.sideToMove;
+        return values[key].get(material.index(slots, side)) & 0xFF;
+    }
+}
@@ -0,0 +1,538 @@
+package tablebase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntBinaryOperator;
+
+import chess.Attacks;
+import chess.Color;
+import chess.PieceType;
+
+//Builds tables by retrograde analysis, each table after the smaller ones it reaches by captures and promotions.
+//The first pass marks illegal positions, finds mates and stalemates and, for positions with moves that leave the
+//table, works out from the smaller tables the one pass in which those exits can settle them. Pass n then
+//settles the positions that are won or lost in exactly n plies: it only visits positions flagged by an un-move
+//from a position settled in pass n - 1 and those whose exit pass is n, and settles a position once one move
+//reaches a loss or every move reaches a win settled in an earlier pass. Whatever is left is a draw.
+//Each pass is split into chunks of indices run on a thread pool. A position is only written by the chunk that
+//owns it and values written in the running pass are ignored by the others, so the result does not depend on
+//the thread count or timing. En passant captures are not generated.
+public class TablebaseGenerator implements AutoCloseable {
+    private static final int CHUNK = 1 << 14;
+    private static final PieceType[] PROMOTIONS = {PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP, PieceType.KNIGHT};
+    private static final int MAX_DISTANCE = 255 - Tablebase.VALUE_DECIDED;
+
+    private Path directory;
+    private Tablebase tables;
+    private ExecutorService pool;
+    private Consumer<String> listener;
+
+    //Tables already in the directory are loaded and reused instead of being generated again
+    public TablebaseGenerator(Path directory, int threads) throws IOException{
+        if(threads < 1){
+            throw new IllegalArgumentException("The generator needs at least one thread");
+        }
+        Files.createDirectories(directory);
+        this.directory = directory;
+        tables = new Tablebase(directory);
+        pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "tablebase-generator");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    //Receives a line of statistics for every table written
+    public void setListener(Consumer<String> listener){
+        this.listener = listener;
+    }
+
+    //Generates a table such as KQK or KBNK and first every smaller table it depends on
+    public void generate(String name) throws IOException{
+        Material material = Material.of(name);
+        if(tables.contains(material)){
+            return;
+        }
+        for (String dependency : dependencies(material)) {
+            generate(dependency);
+        }
+        long start = System.nanoTime();
+        byte[] values = new Generation(material).run();
+        write(material, values);
+        tables.add(material, ByteBuffer.wrap(values));
+        if(listener != null){
+            listener.accept(statistics(material, values, System.nanoTime() - start));
+        }
+    }
+
+    @Override
+    public void close(){
+        pool.shutdownNow();
+    }
+
+    //Materials left after one capture or one promotion, bare kings excluded
+    private static Set<String> dependencies(Material material){
+        Set<String> dependencies = new LinkedHashSet<>();
+        for (int slot = 2; slot < material.getPieces(); slot++) {
+            if(material.getPieces() > 3){
+                dependencies.add(name(material, slot, null));
+            }
+            if(material.getType(slot) == PieceType.PAWN){
+                for (PieceType promotion : PROMOTIONS) {
+                    dependencies.add(name(material, slot, promotion));
+                }
+            }
+        }
+        return dependencies;
+    }
+
+    //The material with one slot removed (replacement null) or turned into another piece
+    private static String name(Material material, int changed, PieceType replacement){
+        StringBuilder white = new StringBuilder("K");
+        StringBuilder black = new StringBuilder("K");
+        for (int slot = 2; slot < material.getPieces(); slot++) {
+            PieceType type = (slot == changed) ? replacement : material.getType(slot);
+            if(type != null){
+                ((material.getColor(slot) == Color.WHITE) ? white : black).append(Material.letter(type));
+            }
+        }
+        return Material.of(white.toString() + black).getName();
+    }
+
+    private void write(Material material, byte[] values) throws IOException{
+        Path file = directory.resolve(material.getName() + Tablebase.EXTENSION);
+        Path temporary = directory.resolve(material.getName() + Tablebase.EXTENSION + ".tmp");
+        try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+            ByteBuffer header = ByteBuffer.allocate(Tablebase.HEADER_SIZE);
+            header.putInt(Tablebase.MAGIC).putInt(material.getSize()).flip();
+            ByteBuffer body = ByteBuffer.wrap(values);
+            while(header.hasRemaining()){
+                channel.write(header);
+            }
+            while(body.hasRemaining()){
+                channel.write(body);
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static String statistics(Material material, byte[] values, long nanos){
+        long won = 0;
+        long lost = 0;
+        long drawn = 0;
+        int longest = 0;
+        for (byte b : values) {
+            int value = b & 0xFF;
+            if(value == Tablebase.VALUE_DRAW){
+                drawn++;
+            }else if(value != Tablebase.VALUE_ILLEGAL){
+                if(Tablebase.wdl(value) == Tablebase.WIN){
+                    won++;
+                }else{
+                    lost++;
+                }
+                longest = Math.max(longest, Tablebase.distance(value));
+            }
+        }
+        return String.format("%s: %d positions, %d won, %d drawn, %d lost, longest mate %d plies, %.2f s", material.getName(), won + drawn + lost, won, drawn, lost, longest, nanos / 1e9);
+    }
+
+    //The state of one table while it is being built
+    private class Generation {
+        private Material material;
+        private byte[] values;
+        private byte[] exitPasses;
+        private boolean[] current;
+        private boolean[] next;
+        private AtomicInteger lastExitPass = new AtomicInteger();
+        private int pass;
+
+        Generation(Material material){
+            this.material = material;
+            values = new byte[material.getSize()];
+            exitPasses = new byte[material.getSize()];
+            current = new boolean[material.getSize()];
+            next = new boolean[material.getSize()];
+        }
+
+        byte[] run(){
+            int settled = parallel((from, to) -> new Worker(this).initialize(from, to));
+            //Exits can settle positions passes after the last un-move did
+            while(settled > 0 || pass < lastExitPass.get()){
+                pass++;
+                boolean[] swap = current;
+                current = next;
+                next = swap;
+                Arrays.fill(next, false);
+                settled = parallel((from, to) -> new Worker(this).settle(from, to));
+            }
+            return values;
+        }
+
+        private int parallel(IntBinaryOperator chunk){
+            List<Callable<Integer>> tasks = new ArrayList<>();
+            for (int from = 0; from < values.length; from += CHUNK) {
+                int start = from;
+                int end = Math.min(values.length, from + CHUNK);
+                tasks.add(() -> chunk.applyAsInt(start, end));
+            }
+            int total = 0;
+            try{
+                for (Future<Integer> future : pool.invokeAll(tasks)) {
+                    total += future.get();
+                }
+            }catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while generating " + material.getName(), e);
+            }catch(ExecutionException e){
+                throw new IllegalStateException("Generation of " + material.getName() + " failed", e.getCause());
+            }
+            return total;
+        }
+    }
+
+    //Works on one decoded position at a time. Moves are made in place on the slot squares, a captured piece gets
+    //square -1 until the move is taken back.
+    private class Worker {
+        private Generation generation;
+        private Material material;
+        private int pieces;
+        private int[] squares = new int[Material.MAX_PIECES];
+        private Color side;
+        private TablePosition exit = new TablePosition();
+
+        private boolean hasExit;
+        private int exitLoss;
+        private int exitWin;
+        private boolean exitOpen;
+        private int lastExitPass;
+        private int bestWin;
+        private int longestLoss;
+        private boolean allLost;
+
+        Worker(Generation generation){
+            this.generation = generation;
+            material = generation.material;
+            pieces = material.getPieces();
+        }
+
+        int initialize(int from, int to){
+            int settled = 0;
+            for (int index = from; index < to; index++) {
+                side = material.decode(index, squares);
+                //The mirrored twin of a position with the white king on the diagonal is never looked up
+                if(!isLegal() || material.index(squares, side) != index){
+                    generation.values[index] = Tablebase.VALUE_ILLEGAL;
+                    continue;
+                }
+                int value = evaluate(0);
+                if(hasExit){
+                    //A lost exit lets the position win one ply later; with only won exits it may be lost once
+                    //the longest of them is settled
+                    int exitPass = (exitLoss != Integer.MAX_VALUE) ? exitLoss + 1 : exitOpen ? 0 : exitWin + 1;
+                    generation.exitPasses[index] = (byte)exitPass;
+                    lastExitPass = Math.max(lastExitPass, exitPass);
+                }
+                if(value != Tablebase.VALUE_DRAW){
+                    generation.values[index] = (byte)value;
+                    markPredecessors();
+                    settled++;
+                }
+            }
+            generation.lastExitPass.accumulateAndGet(lastExitPass, Math::max);
+            return settled;
+        }
+
+        int settle(int from, int to){
+            int settled = 0;
+            int pass = generation.pass;
+            for (int index = from; index < to; index++) {
+                if(generation.values[index] != Tablebase.VALUE_DRAW || !(generation.current[index] || (generation.exitPasses[index] & 0xFF) == pass)){
+                    continue;
+                }
+                side = material.decode(index, squares);
+                int value = evaluate(pass);
+                if(value != Tablebase.VALUE_DRAW){
+                    generation.values[index] = (byte)value;
+                    markPredecessors();
+                    settled++;
+                }
+            }
+            return settled;
+        }
+
+        //Pass 0 only finds mates and exits, pass n settles a position won or lost in exactly n plies
+        private int evaluate(int pass){
+            Color opponent = Material.opponent(side);
+            long occupied = occupied();
+            long own = 0L;
+            for (int i = 0; i < pieces; i++) {
+                if(material.getColor(i) == side){
+                    own |= 1L << squares[i];
+                }
+            }
+            boolean inCheck = isAttacked(kingSquare(side), opponent);
+            hasExit = false;
+            exitLoss = Integer.MAX_VALUE;
+            exitWin = -1;
+            exitOpen = false;
+            bestWin = Integer.MAX_VALUE;
+            longestLoss = -1;
+            allLost = true;
+            int legalMoves = 0;
+
+            for (int i = 0; i < pieces; i++) {
+                if(material.getColor(i) != side){
+                    continue;
+                }
+                int from = squares[i];
+                PieceType type = material.getType(i);
+                long targets;
+                if(type == PieceType.PAWN){
+                    int step = (side == Color.WHITE) ? -8 : 8;
+                    targets = 0L;
+                    if((occupied & (1L << (from + step))) == 0L){
+                        targets |= 1L << (from + step);
+                        int startRow = (side == Color.WHITE) ? 6 : 1;
+                        if(from >> 3 == startRow && (occupied & (1L << (from + 2 * step))) == 0L){
+                            targets |= 1L << (from + 2 * step);
+                        }
+                    }
+                    targets |= Attacks.pawn(side, from) & occupied & ~own;
+                }else{
+                    targets = attacks(type, side, from, occupied) & ~own;
+                }
+
+                while(targets != 0L){
+                    int to = Long.numberOfTrailingZeros(targets);
+                    targets &= targets - 1;
+                    int captured = slotAt(to);
+                    if(captured == 0 || captured == 1){
+                        continue;
+                    }
+                    squares[i] = to;
+                    if(captured >= 0){
+                        squares[captured] = -1;
+                    }
+                    if(!isAttacked(kingSquare(side), opponent)){
+                        legalMoves++;
+                        boolean promotion = type == PieceType.PAWN && (to >> 3 == 0 || to >> 3 == 7);
+                        if(captured < 0 && !promotion){
+                            record(generation.values[material.index(squares, opponent)] & 0xFF, pass);
+                        }else if(promotion){
+                            for (PieceType piece : PROMOTIONS) {
+                                record(exitValue(i, piece), pass);
+                            }
+                        }else{
+                            record(exitValue(-1, null), pass);
+                        }
+                    }
+                    squares[i] = from;
+                    if(captured >= 0){
+                        squares[captured] = to;
+                    }
+                }
+            }
+
+            if(legalMoves == 0){
+                return (pass == 0 && inCheck) ? Tablebase.VALUE_DECIDED : Tablebase.VALUE_DRAW;
+            }
+            if(pass == 0){
+                return Tablebase.VALUE_DRAW;
+            }
+            int distance;
+            if(bestWin != Integer.MAX_VALUE){
+                distance = bestWin + 1;
+            }else if(allLost){
+                distance = longestLoss + 1;
+            }else{
+                return Tablebase.VALUE_DRAW;
+            }
+            if(distance > MAX_DISTANCE){
+                throw new IllegalStateException("Mate too long to store in " + material.getName());
+            }
+            return Tablebase.VALUE_DECIDED + distance;
+        }
+
+        //Only values settled before this pass count, anything else keeps the position open for now
+        private void record(int value, int pass){
+            if(value >= Tablebase.VALUE_DECIDED && value - Tablebase.VALUE_DECIDED < pass){
+                int distance = value - Tablebase.VALUE_DECIDED;
+                if(distance % 2 == 0){
+                    bestWin = Math.min(bestWin, distance);
+                }else{
+                    longestLoss = Math.max(longestLoss, distance);
+                }
+                return;
+            }
+            allLost = false;
+        }
+
+        //Value in a smaller table after a capture, or a promotion of the piece in slot promoted
+        private int exitValue(int promoted, PieceType promotion){
+            hasExit = true;
+            exit.clear(Material.opponent(side));
+            for (int i = 0; i < pieces; i++) {
+                if(squares[i] >= 0){
+                    exit.add(squares[i], (i == promoted) ? promotion : material.getType(i), material.getColor(i));
+                }
+            }
+            int value = tables.value(exit);
+            if(value == Tablebase.VALUE_ILLEGAL){
+                throw new IllegalStateException("No table for a position reached from " + material.getName());
+            }
+            int distance = value - Tablebase.VALUE_DECIDED;
+            if(value < Tablebase.VALUE_DECIDED){
+                exitOpen = true;
+            }else if(distance % 2 == 0){
+                exitLoss = Math.min(exitLoss, distance);
+            }else{
+                exitWin = Math.max(exitWin, distance);
+            }
+            return value;
+        }
+
+        //Flags every position of this table from which the side that just moved could have reached this one
+        private void markPredecessors(){
+            Color mover = Material.opponent(side);
+            long occupied = occupied();
+            for (int i = 0; i < pieces; i++) {
+                if(material.getColor(i) != mover){
+                    continue;
+                }
+                int to = squares[i];
+                PieceType type = material.getType(i);
+                long origins;
+                if(type == PieceType.PAWN){
+                    int back = (mover == Color.WHITE) ? 8 : -8;
+                    int startRow = (mover == Color.WHITE) ? 6 : 1;
+                    int one = to + back;
+                    origins = 0L;
+                    if(one >> 3 != 0 && one >> 3 != 7 && (occupied & (1L << one)) == 0L){
+                        origins |= 1L << one;
+                        int two = one + back;
+                        if(two >> 3 == startRow && (occupied & (1L << two)) == 0L){
+                            origins |= 1L << two;
+                        }
+                    }
+                }else{
+                    origins = attacks(type, mover, to, occupied) & ~occupied;
+                }
+                while(origins != 0L){
+                    squares[i] = Long.numberOfTrailingZeros(origins);
+                    origins &= origins - 1;
+                    generation.next[material.index(squares, mover)] = true;
+                }
+                squares[i] = to;
+            }
+        }
+
+        private boolean isLegal(){
+            for (int i = 0; i < pieces; i++) {
+                if(material.getType(i) == PieceType.PAWN && (squares[i] >> 3 == 0 || squares[i] >> 3 == 7)){
+                    return false;
+                }
+                for (int j = 0; j < i; j++) {
+                    if(squares[i] == squares[j]){
+                        return false;
+                    }
+                }
+            }
+            return !isAttacked(kingSquare(Material.opponent(side)), side);
+        }
+
+        private boolean isAttacked(int square, Color by){
+            long occupied = occupied();
+            for (int i = 0; i < pieces; i++) {
+                if(squares[i] >= 0 && material.getColor(i) == by && (attacks(material.getType(i), by, squares[i], occupied) & (1L << square)) != 0L){
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private long occupied(){
+            long occupied = 0L;
+            for (int i = 0; i < pieces; i++) {
+                if(squares[i] >= 0){
+                    occupied |= 1L << squares[i];
+                }
+            }
+            return occupied;
+        }
+
+        private int slotAt(int square){
+            for (int i = 0; i < pieces; i++) {
+                if(squares[i] == square){
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int kingSquare(Color color){
+            return squares[(color == Color.WHITE) ? 0 : 1];
+        }
+    }
+
+    private static long attacks(PieceType type, Color color, int square, long occupied){
+        switch(type){
+            case PAWN:
+                return Attacks.pawn(color, square);
+            case KNIGHT:
+                return Attacks.knight(square);
+            case BISHOP:
+                return Attacks.bishop(square, occupied);
+            case ROOK:
+                return Attacks.rook(square, occupied);
+            case QUEEN:
+                return Attacks.queen(square, occupied);
+            default:
+                return Attacks.king(square);
+        }
+    }
+
+    //Usage: tablebase.TablebaseGenerator <directory> [tables <name,name,...>] [threads <n>]
+    public static void main(String[] args) throws IOException{
+        if(args.length < 1){
+            System.out.println("Usage: tablebase.TablebaseGenerator <directory> [tables <name,name,...>] [threads <n>]");
+            return;
+        }
+        String[] names = {"KQK", "KRK", "KBK", "KNK", "KPK", "KBNK", "KQKR"};
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 1; i < args.length; i++) {
+            if(args[i].equals("tables")){
+                names = args[++i].split(",");
+            }else if(args[i].equals("threads")){
+                threads = Integer.parseInt(args[++i]);
+            }else{
+                throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        long start = System.nanoTime();
+        try(TablebaseGenerator generator = new TablebaseGenerator(Path.of(args[0]), threads)){
+            generator.setListener(System.out::println);
+            for (String name : names) {
+                generator.generate(name);
+            }
+        }
+        System.out.printf("Time: %.2f s with %d threads%n", (System.nanoTime() - start) / 1e9, threads);
+    }
+}
@@ -0,0 +1,428 @@
+package uci;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import book.Book;
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Color;
+import chess.Move;
+import engine.Engine;
+import engine.Search;
+import engine.SearchLimits;
+import engine.SearchResult;
+import tablebase.Tablebase;
+
+//Universal Chess Interface front end for the engine, so GUIs and tournament managers can drive it. The calling
+//thread only reads commands; searches run on a thread of their own and print their bestmove when done, so stop
+//and isready are handled while a search is running.
+public class Uci {
+    private static final String START_FEN = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    private static final int DEFAULT_HASH = 64;
+    private static final int MAX_HASH = 4096;
+    private static final int MAX_THREADS = 64;
+    private static final int MOVE_OVERHEAD_MILLIS = 20;
+
+    private PrintStream out;
+    private ExecutorService searcher = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "uci-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Engine engine;
+    private int hash = DEFAULT_HASH;
+    private int threads = 1;
+    private Book book;
+    private Tablebase tablebase;
+    private ChessMatch chessMatch = ChessMatch.fromFen(START_FEN);
+    private int[] legal = new int[256];
+    private Future<?> search;
+    private CountDownLatch stopped;
+    private AtomicBoolean abandoned;
+    private ChessMatch ponderPosition;
+    private SearchLimits ponderLimits;
+
+    public Uci(PrintStream out){
+        this.out = out;
+        engine = newEngine(hash, threads);
+    }
+
+    //Reads commands until quit or the end of the input
+    public void run(BufferedReader in) throws IOException{
+        for (String line = in.readLine(); line != null; line = in.readLine()) {
+            if(!handle(line.trim())){
+                break;
+            }
+        }
+        stopSearch();
+        engine.shutdown();
+    }
+
+    //false once the front end should exit. A command that cannot be carried out is answered with an info string,
+    //the front end itself keeps running so the GUI is not left waiting.
+    boolean handle(String line){
+        try{
+            return execute(line);
+        }catch(RuntimeException e){
+            send("info string cannot handle '" + line + "': " + e.getMessage());
+            return true;
+        }
+    }
+
+    private boolean execute(String line){
+        String[] words = line.split("\\s+");
+        switch(words[0]){
+            case "uci":
+                send("id name Chess");
+                send("id author the Chess contributors");
+                send("option name Hash type spin default " + DEFAULT_HASH + " min 1 max " + MAX_HASH);
+                send("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+                send("option name Ponder type check default false");
+                send("option name BookFile type string default <empty>");
+                send("option name TablebasePath type string default <empty>");
+                send("uciok");
+                break;
+            case "isready":
+                send("readyok");
+                break;
+            case "setoption":
+                stopSearch();
+                setOption(line);
+                break;
+            case "ucinewgame":
+                stopSearch();
+                engine.newGame();
+                break;
+            case "position":
+                stopSearch();
+                position(words);
+                break;
+            case "go":
+                stopSearch();
+                go(words);
+                break;
+            case "stop":
+                stopSearch();
+                break;
+            case "ponderhit":
+                ponderhit();
+                break;
+            case "quit":
+                return false;
+            default:
+                if(!words[0].isEmpty()){
+                    send("info string unknown command " + words[0]);
+                }
+        }
+        return true;
+    }
+
+    //position startpos|fen <fen> [moves <move>...]
+    private void position(String[] words){
+        int i = 1;
+        StringBuilder fen = new StringBuilder();
+        if(i < words.length && words[i].equals("startpos")){
+            fen.append(START_FEN);
+            i++;
+        }else if(i < words.length && words[i].equals("fen")){
+            for (i++; i < words.length && !words[i].equals("moves"); i++) {
+                fen.append(words[i]).append(' ');
+            }
+        }else{
+            send("info string position needs startpos or fen");
+            return;
+        }
+        //Built aside and only taken once every move applied, a bad command keeps the previous position
+        ChessMatch position;
+        try{
+            position = ChessMatch.fromFen(fen.toString().trim());
+        }catch(ChessException e){
+            send("info string " + e.getMessage());
+            return;
+        }
+        if(i < words.length && words[i].equals("moves")){
+            for (i++; i < words.length; i++) {
+                int move = legalMove(position, words[i]);
+                if(move == Move.NONE){
+                    send("info string illegal move " + words[i] + ", position unchanged");
+                    return;
+                }
+                position.playMove(move);
+            }
+        }
+        chessMatch = position;
+    }
+
+    private int legalMove(ChessMatch position, String text){
+        int move = Move.fromString(text);
+        int count = position.legalMoves(legal);
+        for (int i = 0; i < count; i++) {
+            if(legal[i] == move){
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+
+    //go [depth <d>] [nodes <n>] [movetime <ms>] [wtime <ms>] [btime <ms>] [winc <ms>] [binc <ms>] [movestogo <n>] [infinite] [ponder]
+    private void go(String[] words){
+        int depth = 0;
+        long nodes = 0;
+        long moveTime = 0;
+        long time = -1;
+        long increment = 0;
+        int movesToGo = 0;
+        boolean infinite = false;
+        boolean ponder = false;
+        boolean white = chessMatch.getSideToMove() == Color.WHITE;
+        for (int i = 1; i < words.length; i++) {
+            switch(words[i]){
+                case "depth":
+                    depth = (int)number(words, ++i);
+                    break;
+                case "nodes":
+                    nodes = number(words, ++i);
+                    break;
+                case "movetime":
+                    moveTime = number(words, ++i);
+                    break;
+                case "wtime":
+                case "btime":
+                    long left = number(words, ++i);
+                    if(words[i - 1].equals(white ? "wtime" : "btime")){
+                        time = left;
+                    }
+                    break;
+                case "winc":
+                case "binc":
+                    long inc = number(words, ++i);
+                    if(words[i - 1].equals(white ? "winc" : "binc")){
+                        increment = inc;
+                    }
+                    break;
+                case "movestogo":
+                    movesToGo = (int)number(words, ++i);
+                    break;
+                case "infinite":
+                    infinite = true;
+                    break;
+                case "ponder":
+                    ponder = true;
+                    break;
+                default:
+                    //searchmoves and anything else is ignored
+            }
+        }
+        if(moveTime == 0 && time >= 0){
+            //An even share of the clock over the moves left, assuming 30 when the GUI does not say
+            long share = time / ((movesToGo > 0) ? movesToGo : 30) + increment * 3 / 4;
+            moveTime = Math.max(1, Math.min(share, time / 2) - MOVE_OVERHEAD_MILLIS);
+        }else if(moveTime > MOVE_OVERHEAD_MILLIS){
+            moveTime -= MOVE_OVERHEAD_MILLIS;
+        }
+
+        SearchLimits limits = new SearchLimits(depth, nodes, infinite ? 0 : moveTime);
+        ChessMatch position = new ChessMatch(chessMatch);
+        if(ponder){
+            //Searched without a time limit until ponderhit hands over the real limits, or stop ends it
+            startSearch(position, new SearchLimits(depth, nodes, 0), true);
+            ponderPosition = position;
+            ponderLimits = limits;
+        }else{
+            startSearch(position, limits, infinite);
+        }
+    }
+
+    //Value after a go keyword, which has to be a non-negative number
+    private static long number(String[] words, int i){
+        if(i >= words.length){
+            throw new IllegalArgumentException(words[i - 1] + " needs a value");
+        }
+        try{
+            long value = Long.parseLong(words[i]);
+            if(value < 0 || value > Integer.MAX_VALUE){
+                throw new IllegalArgumentException(words[i - 1] + " out of range: " + words[i]);
+            }
+            return value;
+        }catch(NumberFormatException e){
+            throw new IllegalArgumentException(words[i - 1] + " is not a number: " + words[i]);
+        }
+    }
+
+    //bestmove is always sent, 0000 when the search failed, so the GUI never waits forever.
+    //In infinite and ponder mode it may only be sent after stop.
+    private void startSearch(ChessMatch position, SearchLimits limits, boolean waitForStop){
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicBoolean dropped = new AtomicBoolean();
+        Engine current = engine;
+        stopped = latch;
+        abandoned = dropped;
+        search = searcher.submit(() -> {
+            int bestMove = Move.NONE;
+            try{
+                bestMove = current.bestMove(position, limits).getBestMove();
+            }catch(RuntimeException e){
+                send("info string search failed: " + e);
+            }
+            if(waitForStop){
+                try{
+                    latch.await();
+                }catch(InterruptedException e){
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if(!dropped.get()){
+                send("bestmove " + ((bestMove != Move.NONE) ? Move.toString(bestMove) : "0000"));
+            }
+        });
+    }
+
+    //The predicted move was played: the ponder search is dropped without a bestmove and the position is searched
+    //again under the limits of the go ponder command, starting from what it left in the transposition table
+    private void ponderhit(){
+        if(ponderLimits == null){
+            return;
+        }
+        ChessMatch position = ponderPosition;
+        SearchLimits limits = ponderLimits;
+        abandoned.set(true);
+        stopSearch();
+        startSearch(position, limits, false);
+    }
+
+    //Stops a running search and waits for its bestmove; the engine may not have started yet, so keep asking
+    private void stopSearch(){
+        if(search == null){
+            return;
+        }
+        stopped.countDown();
+        while(!search.isDone()){
+            engine.stop();
+            try{
+                search.get(1, TimeUnit.MILLISECONDS);
+            }catch(TimeoutException e){
+                //Not done yet
+            }catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+                break;
+            }catch(ExecutionException e){
+                send("info string search failed: " + e.getCause());
+                if(!abandoned.get()){
+                    send("bestmove 0000");
+                }
+            }
+        }
+        search = null;
+        ponderPosition = null;
+        ponderLimits = null;
+    }
+
+    private void setOption(String line){
+        int name = line.indexOf("name ");
+        int value = line.indexOf(" value ");
+        if(name < 0){
+            return;
+        }
+        String option = ((value > name) ? line.substring(name + 5, value) : line.substring(name + 5)).trim();
+        String argument = (value > name) ? line.substring(value + 7).trim() : "";
+        try{
+            switch(option){
+                case "Hash":
+                    int megabytes = spin(argument, MAX_HASH);
+                    replaceEngine(megabytes, threads);
+                    hash = megabytes;
+                    break;
+                case "Threads":
+                    int count = spin(argument, MAX_THREADS);
+                    replaceEngine(hash, count);
+                    threads = count;
+                    break;
+                case "Ponder":
+                    //Nothing to set up, pondering is driven by go ponder and ponderhit
+                    break;
+                case "BookFile":
+                    if(book != null){
+                        book.close();
+                    }
+                    book = (argument.isEmpty() || argument.equals("<empty>")) ? null : new Book(Path.of(argument));
+                    engine.setBook(book);
+                    break;
+                case "TablebasePath":
+                    tablebase = (argument.isEmpty() || argument.equals("<empty>")) ? null : new Tablebase(Path.of(argument));
+                    engine.setTablebase(tablebase);
+                    break;
+                default:
+                    send("info string unknown option " + option);
+            }
+        }catch(IOException | IllegalArgumentException e){
+            send("info string cannot set " + option + ": " + e.getMessage());
+        }
+    }
+
+    private static int spin(String argument, int max){
+        int value = Integer.parseInt(argument);
+        if(value < 1 || value > max){
+            throw new IllegalArgumentException(value + " is not between 1 and " + max);
+        }
+        return value;
+    }
+
+    //The old engine is only shut down once the new one exists, a rejected value leaves everything as it was
+    private void replaceEngine(int hash, int threads){
+        Engine replacement;
+        try{
+            replacement = newEngine(hash, threads);
+        }catch(OutOfMemoryError e){
+            //The hash table is allocated up front, a size the machine cannot give is a bad value like any other
+            throw new IllegalArgumentException("not enough memory for a " + hash + " MB hash table", e);
+        }
+        engine.shutdown();
+        engine = replacement;
+    }
+
+    private Engine newEngine(int hash, int threads){
+        Engine engine = new Engine(hash, threads);
+        engine.setBook(book);
+        engine.setTablebase(tablebase);
+        engine.setListener(this::info);
+        return engine;
+    }
+
+    private void info(SearchResult result){
+        int score = result.getScore();
+        String value;
+        if(Search.isMateScore(score)){
+            int plies = Search.MATE - Math.abs(score);
+            value = "mate " + ((score > 0) ? (plies + 1) / 2 : -(plies / 2));
+        }else{
+            value = "cp " + score;
+        }
+        StringBuilder pv = new StringBuilder();
+        for (int move : result.getPrincipalVariation()) {
+            pv.append(' ').append(Move.toString(move));
+        }
+        send("info depth " + result.getDepth() + " score " + value + " nodes " + result.getNodes() + " nps " + result.getNodesPerSecond() + " time " + result.getTimeMillis() + " pv" + pv);
+    }
+
+    private synchronized void send(String line){
+        out.println(line);
+        out.flush();
+    }
+
+    public static void main(String[] args) throws IOException{
+        new Uci(System.out).run(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.US_ASCII)));
+    }
+}
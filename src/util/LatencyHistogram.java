@@ -0,0 +1,88 @@
+package util;
+
+//Durations in nanoseconds counted in log-linear buckets: 16 buckets per power of two, so a percentile is read
+//back within about 6% using a fixed 8KB of counters however many values are recorded. Not thread safe,
+//keep one per thread and merge them with add.
+public class LatencyHistogram {
+    private static final int SUB_BUCKETS = 16;
+
+    private long[] counts = new long[64 * SUB_BUCKETS];
+    private long count;
+    private long total;
+    private long max;
+
+    public void record(long nanos){
+        nanos = Math.max(0L, nanos);
+        counts[bucket(nanos)]++;
+        count++;
+        total += nanos;
+        max = Math.max(max, nanos);
+    }
+
+    public void add(LatencyHistogram other){
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    public long getCount(){
+        return count;
+    }
+
+    public long getMax(){
+        return max;
+    }
+
+    public long getMean(){
+        return (count == 0) ? 0L : total / count;
+    }
+
+    //Upper bound of the bucket holding the given fraction of values, e.g. 0.99 for the 99th percentile
+    public long percentile(double fraction){
+        if(count == 0){
+            return 0L;
+        }
+        long rank = (long)Math.ceil(fraction * count);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if(seen >= rank){
+                return Math.min(upperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    private static int bucket(long nanos){
+        if(nanos < SUB_BUCKETS){
+            return (int)nanos;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        int mantissa = (int)(nanos >>> (exponent - 4)) & (SUB_BUCKETS - 1);
+        return (exponent - 3) * SUB_BUCKETS + mantissa;
+    }
+
+    private static long upperBound(int bucket){
+        if(bucket < SUB_BUCKETS){
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + 3;
+        int mantissa = bucket % SUB_BUCKETS;
+        return ((SUB_BUCKETS + mantissa + 1L) << (exponent - 4)) - 1;
+    }
+
+    @Override
+    public String toString(){
+        return String.format("p50 %s p99 %s max %s", format(percentile(0.5)), format(percentile(0.99)), format(max));
+    }
+
+    private static String format(long nanos){
+        if(nanos >= 1_000_000){
+            return String.format("%.2f ms", nanos / 1e6);
+        }
+        return String.format("%.1f us", nanos / 1e3);
+    }
+}
@@ -0,0 +1,134 @@
+package archive;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import chess.ChessMatch;
+import pgn.PgnReader;
+import testing.Tests;
+
+//Writes random games to an archive, appends more, and reads everything back: moves, results, start positions
+//and the replayed final position. Also checks that a rejected game or a writer that is never closed leaves
+//the games in the archive as they were.
+public class ArchiveRoundTripTest {
+    private static final String[] RESULTS = {PgnReader.WHITE_WINS, PgnReader.BLACK_WINS, PgnReader.DRAW, PgnReader.UNKNOWN, null};
+
+    public static void main(String[] args) throws IOException{
+        Path directory = Files.createTempDirectory("archive-test");
+        Path path = directory.resolve("games.carc");
+        try{
+            Random random = new Random(18);
+            List<Game> games = new ArrayList<>();
+            write(path, games, random, 200);
+            verify(path, games);
+            write(path, games, random, 100);
+            verify(path, games);
+
+            try(ArchiveWriter writer = new ArchiveWriter(path)){
+                try{
+                    writer.add(null, new int[] {1 << 16}, 1, null);
+                    throw new AssertionError("a move that does not fit 16 bits was accepted");
+                }catch(IllegalArgumentException e){
+                    //Expected
+                }
+                Tests.check(writer.getGameCount() == games.size(), "a rejected game was counted");
+            }
+            verify(path, games);
+
+            //A writer that never gets to close() leaves its games past the committed end, where readers do not look
+            long committed = Files.size(path);
+            ArchiveWriter abandoned = new ArchiveWriter(path);
+            for (int i = 0; i < 1000; i++) {
+                abandoned.add(null, new int[1000], 1000, null);
+            }
+            Tests.check(Files.size(path) > committed, "the unclosed writer did not write anything");
+            verify(path, games);
+            //The next writer drops them and appends only a new index and footer
+            try(ArchiveWriter writer = new ArchiveWriter(path)){
+                Tests.check(writer.getGameCount() == games.size(), "the next writer counted uncommitted games");
+            }
+            Tests.check(Files.size(path) == committed + games.size() * 8L + ArchiveFormat.FOOTER_SIZE, "the uncommitted games were kept");
+            verify(path, games);
+        }finally{
+            try(var files = Files.list(directory)){
+                for (Path file : (Iterable<Path>)files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+        Tests.passed(ArchiveRoundTripTest.class, "");
+    }
+
+    private static void write(Path path, List<Game> games, Random random, int count) throws IOException{
+        int[] legal = new int[256];
+        try(ArchiveWriter writer = new ArchiveWriter(path)){
+            for (int i = 0; i < count; i++) {
+                ChessMatch chessMatch = new ChessMatch("N");
+                String fen = null;
+                if(random.nextInt(4) == 0){
+                    //Some games start from a position taken out of another game
+                    playRandom(chessMatch, random, legal, 10 + random.nextInt(20));
+                    fen = chessMatch.toFen();
+                    chessMatch = ChessMatch.fromFen(fen);
+                }
+                int[] moves = playRandom(chessMatch, random, legal, random.nextInt(120));
+                Game game = new Game(fen, moves, RESULTS[random.nextInt(RESULTS.length)], chessMatch.toFen());
+                writer.add(game.fen, game.moves, game.moves.length, game.result);
+                games.add(game);
+            }
+            Tests.check(writer.getGameCount() == games.size(), "writer counted " + writer.getGameCount() + " games");
+        }
+    }
+
+    private static int[] playRandom(ChessMatch chessMatch, Random random, int[] legal, int plies){
+        int[] moves = new int[plies];
+        for (int ply = 0; ply < plies; ply++) {
+            int count = chessMatch.legalMoves(legal);
+            if(count == 0){
+                return Arrays.copyOf(moves, ply);
+            }
+            moves[ply] = legal[random.nextInt(count)];
+            chessMatch.playMove(moves[ply]);
+        }
+        return moves;
+    }
+
+    private static void verify(Path path, List<Game> games) throws IOException{
+        ChessMatch chessMatch = new ChessMatch("N");
+        try(ArchiveReader reader = new ArchiveReader(path)){
+            Tests.check(reader.getGameCount() == games.size(), "archive holds " + reader.getGameCount() + " games instead of " + games.size());
+            for (int i = 0; i < games.size(); i++) {
+                Game game = games.get(i);
+                reader.select(i);
+                Tests.check(reader.getMoveCount() == game.moves.length, "game " + i + " has the wrong number of moves");
+                for (int ply = 0; ply < game.moves.length; ply++) {
+                    Tests.check(reader.getMove(ply) == game.moves[ply], "game " + i + " ply " + ply + " differs");
+                }
+                Tests.check(String.valueOf(reader.getFen()).equals(String.valueOf(game.fen)), "game " + i + " has the wrong start position");
+                Tests.check(String.valueOf(reader.getResult()).equals(String.valueOf(game.result)), "game " + i + " has result " + reader.getResult() + " instead of " + game.result);
+                reader.replay(chessMatch);
+                Tests.check(chessMatch.toFen().equals(game.last), "game " + i + " replays to " + chessMatch.toFen());
+            }
+        }
+    }
+
+    private static class Game {
+        private String fen;
+        private int[] moves;
+        private String result;
+        private String last;
+
+        Game(String fen, int[] moves, String result, String last){
+            this.fen = fen;
+            this.moves = moves;
+            this.result = result;
+            this.last = last;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package book;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import archive.ArchiveReader;
+import archive.ArchiveWriter;
+import chess.ChessMatch;
+import chess.Move;
+import pgn.PgnReader;
+import testing.Tests;
+
+//Polyglot move encoding round trips for every legal move of random positions, castling and promotions included,
+//and a book built from a small archive holds exactly the moves and weights the games call for.
+public class BookRoundTripTest {
+    public static void main(String[] args) throws IOException{
+        moveEncoding();
+        buildAndProbe();
+        Tests.passed(BookRoundTripTest.class, "");
+    }
+
+    private static void moveEncoding(){
+        Random random = new Random(19);
+        int[] moves = new int[256];
+        for (int game = 0; game < 200; game++) {
+            ChessMatch chessMatch = new ChessMatch((game % 2 == 0) ? "N" : "Y", game);
+            for (int ply = 0; ply < 150; ply++) {
+                int count = chessMatch.legalMoves(moves);
+                if(count == 0){
+                    break;
+                }
+                for (int i = 0; i < count; i++) {
+                    int decoded = Book.decodeMove(chessMatch, Book.encodeMove(chessMatch, moves[i]));
+                    Tests.check(decoded == moves[i], Move.toString(moves[i]) + " came back as " + Move.toString(decoded) + " in " + chessMatch.toFen());
+                }
+                chessMatch.playMove(moves[random.nextInt(count)]);
+            }
+        }
+    }
+
+    private static void buildAndProbe() throws IOException{
+        Path directory = Files.createTempDirectory("book-test");
+        Path archivePath = directory.resolve("games.carc");
+        Path bookPath = directory.resolve("book.bin");
+        try{
+            try(ArchiveWriter writer = new ArchiveWriter(archivePath)){
+                for (int i = 0; i < 3; i++) {
+                    add(writer, PgnReader.WHITE_WINS, "e2e4", "e7e5");
+                }
+                add(writer, PgnReader.DRAW, "d2d4", "d7d5");
+                add(writer, PgnReader.DRAW, "d2d4", "d7d5");
+                //Only ever lost: weight 0, left out
+                add(writer, PgnReader.BLACK_WINS, "c2c4", "e7e5");
+                add(writer, PgnReader.BLACK_WINS, "c2c4", "e7e5");
+                //Played in a single game, below the minimum of two
+                add(writer, PgnReader.WHITE_WINS, "g1f3", "d7d5");
+                //No result: not counted at all
+                add(writer, PgnReader.UNKNOWN, "b2b3", "e7e5");
+                add(writer, PgnReader.UNKNOWN, "b2b3", "e7e5");
+            }
+            BookBuilder builder = new BookBuilder(4, 2);
+            try(ArchiveReader reader = new ArchiveReader(archivePath)){
+                builder.add(reader);
+            }
+            Tests.check(builder.getGames() == 8, "decided games counted: " + builder.getGames());
+            builder.write(bookPath);
+
+            try(Book book = new Book(bookPath)){
+                int[] moves = new int[64];
+                int[] weights = new int[64];
+                ChessMatch chessMatch = new ChessMatch("N");
+                int count = book.probe(chessMatch, moves, weights);
+                Tests.check(count == 2, "start position has " + count + " book moves");
+                int e4 = indexOf(moves, count, "e2e4");
+                int d4 = indexOf(moves, count, "d2d4");
+                Tests.check(e4 >= 0 && d4 >= 0, "e2e4 and d2d4 are the book moves");
+                Tests.check(weights[e4] > weights[d4], "three wins weigh more than two draws");
+                Tests.check(Move.toString(book.bestMove(chessMatch)).equals("e2e4"), "best book move is e2e4");
+
+                chessMatch.playMove(move(chessMatch, "d2d4"));
+                count = book.probe(chessMatch, moves, weights);
+                Tests.check(count == 1 && Move.toString(moves[0]).equals("d7d5"), "d7d5 drew twice and is in the book");
+
+                chessMatch = new ChessMatch("N");
+                chessMatch.playMove(move(chessMatch, "e2e4"));
+                Tests.check(book.probe(chessMatch, moves, weights) == 0, "e7e5 only ever lost and is left out");
+            }
+        }finally{
+            Files.deleteIfExists(bookPath);
+            Files.deleteIfExists(archivePath);
+            Files.delete(directory);
+        }
+    }
+
+    private static void add(ArchiveWriter writer, String result, String... moves) throws IOException{
+        ChessMatch chessMatch = new ChessMatch("N");
+        int[] packed = new int[moves.length];
+        for (int i = 0; i < moves.length; i++) {
+            packed[i] = move(chessMatch, moves[i]);
+            chessMatch.playMove(packed[i]);
+        }
+        writer.add(null, packed, packed.length, result);
+    }
+
+    private static int indexOf(int[] moves, int count, String move){
+        for (int i = 0; i < count; i++) {
+            if(Move.toString(moves[i]).equals(move)){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    //The legal move written as in UCI, e.g. e2e4
+    private static int move(ChessMatch chessMatch, String text){
+        int[] moves = new int[256];
+        int count = chessMatch.legalMoves(moves);
+        int index = indexOf(moves, count, text);
+        if(index < 0){
+            throw new IllegalArgumentException("Not a legal move: " + text);
+        }
+        return moves[index];
+    }
+}
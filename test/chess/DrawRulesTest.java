@@ -0,0 +1,86 @@
+package chess;
+
+import engine.Engine;
+import engine.Search;
+import engine.SearchLimits;
+import engine.SearchResult;
+import testing.Tests;
+
+//Threefold repetition and the fifty-move rule: when they trigger, that undo, copies and snapshots keep the keys they need,
+//that a capture or pawn move starts the count again, and that a mate on the hundredth half move stays a mate.
+public class DrawRulesTest {
+    private static final String[] SHUFFLE = {"g1f3", "g8f6", "f3g1", "f6g8"};
+
+    public static void main(String[] args){
+        threefold();
+        irreversibleMoveResets();
+        fiftyMoves();
+        mateOnTheLastMove();
+        snapshotKeepsRepetitions();
+        Tests.passed(DrawRulesTest.class, "");
+    }
+
+    private static void threefold(){
+        ChessMatch chessMatch = new ChessMatch("N");
+        int[] expected = {0, 0, 0, 1, 1, 1, 1, 2};
+        for (int i = 0; i < expected.length; i++) {
+            play(chessMatch, SHUFFLE[i % 4]);
+            Tests.check(chessMatch.getRepetitions() == expected[i], "after " + (i + 1) + " moves " + chessMatch.getRepetitions() + " repetitions");
+            Tests.check(chessMatch.getGameOver() == (i == expected.length - 1), "game over only on the third occurrence");
+        }
+        Tests.check(chessMatch.getThreefoldRepetition(), "start position reached three times");
+        Tests.check(new ChessMatch(chessMatch).getThreefoldRepetition(), "a copy sees the same repetitions");
+        chessMatch.undo();
+        Tests.check(!chessMatch.getThreefoldRepetition(), "undo takes the repetition back");
+        chessMatch.redo();
+        Tests.check(chessMatch.getThreefoldRepetition(), "redo brings it back");
+    }
+
+    private static void irreversibleMoveResets(){
+        ChessMatch chessMatch = new ChessMatch("N");
+        for (String move : SHUFFLE) {
+            play(chessMatch, move);
+        }
+        play(chessMatch, "e2e4");
+        play(chessMatch, "e7e5");
+        for (String move : SHUFFLE) {
+            play(chessMatch, move);
+        }
+        Tests.check(chessMatch.getRepetitions() == 1, "only the position after the pawn moves repeats");
+    }
+
+    private static void fiftyMoves(){
+        ChessMatch chessMatch = ChessMatch.fromFen("8/8/8/4k3/8/8/8/R3K3 w - - 99 80");
+        Tests.check(!chessMatch.getFiftyMoveRule(), "99 half moves are not enough");
+        play(chessMatch, "a1a2");
+        Tests.check(chessMatch.getFiftyMoveRule() && chessMatch.getGameOver(), "the hundredth half move ends the game");
+        chessMatch.unplayMove();
+        Tests.check(!chessMatch.getFiftyMoveRule(), "taken back with the move");
+        Tests.check(new Engine(1).bestMove(ChessMatch.fromFen("8/8/8/4k3/8/8/8/R3K3 w - - 99 80"), SearchLimits.depth(4)).getScore() == 0,
+            "the search scores a full fifty-move clock as a draw");
+    }
+
+    private static void mateOnTheLastMove(){
+        ChessMatch chessMatch = ChessMatch.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 99 80");
+        chessMatch.peformChessMove(new ChessPosition('a', 1), new ChessPosition('a', 8));
+        Tests.check(chessMatch.getCheckmate() && !chessMatch.getFiftyMoveRule(), "mate wins over the fifty-move rule");
+        SearchResult result = new Engine(1).bestMove(ChessMatch.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 99 80"), SearchLimits.depth(2));
+        Tests.check(result.getScore() == Search.MATE - 1 && Move.toString(result.getBestMove()).equals("a1a8"),
+            "the search finds the mate on the hundredth half move instead of scoring it as a draw");
+    }
+
+    private static void snapshotKeepsRepetitions(){
+        ChessMatch chessMatch = new ChessMatch("N");
+        for (int i = 0; i < 7; i++) {
+            play(chessMatch, SHUFFLE[i % 4]);
+        }
+        ChessMatch restored = new ChessMatch(chessMatch.snapshot());
+        play(restored, SHUFFLE[3]);
+        Tests.check(restored.getThreefoldRepetition(), "a match built from a snapshot still counts earlier positions");
+    }
+
+    private static void play(ChessMatch chessMatch, String text){
+        int move = Move.fromString(text);
+        chessMatch.peformChessMove(ChessPosition.fromSquare(Move.from(move)), ChessPosition.fromSquare(Move.to(move)));
+    }
+}
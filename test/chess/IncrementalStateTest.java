@@ -0,0 +1,55 @@
+package chess;
+
+import java.util.Random;
+
+import engine.Evaluator;
+import testing.Tests;
+
+//Random walk over standard and Chess960 games, checking after every move and take-back that the incrementally
+//kept Zobrist key and evaluation terms still match a full recomputation, also in copies of the match.
+//Takes an optional game count: chess.IncrementalStateTest [games <n>]
+public class IncrementalStateTest {
+    private static Evaluator evaluator = new Evaluator();
+
+    public static void main(String[] args){
+        int games = (args.length == 2 && args[0].equals("games")) ? Integer.parseInt(args[1]) : 300;
+        Random random = new Random(14);
+        int[] moves = new int[256];
+        long checked = 0;
+        for (int game = 0; game < games; game++) {
+            ChessMatch chessMatch = new ChessMatch((game % 2 == 0) ? "N" : "Y", game);
+            int played = 0;
+            for (int ply = 0; ply < 200; ply++) {
+                int count = chessMatch.legalMoves(moves);
+                if(count == 0){
+                    break;
+                }
+                String where = "game " + game + " ply " + ply;
+                chessMatch.playMove(moves[random.nextInt(count)]);
+                played++;
+                checkState(chessMatch, where);
+                if(random.nextInt(8) == 0){
+                    chessMatch.unplayMove();
+                    played--;
+                    checkState(chessMatch, where + " after a take-back");
+                }
+                if(random.nextInt(16) == 0){
+                    ChessMatch copy = new ChessMatch(chessMatch);
+                    checkState(copy, where + " in a copy");
+                    Tests.check(copy.getZobristKey() == chessMatch.getZobristKey(), "copy has another key at " + where);
+                }
+                checked++;
+            }
+            for (; played > 0; played--) {
+                chessMatch.unplayMove();
+                checkState(chessMatch, "game " + game + " taking back to the start");
+            }
+        }
+        Tests.passed(IncrementalStateTest.class, games + " games, " + checked + " moves");
+    }
+
+    private static void checkState(ChessMatch chessMatch, String where){
+        Tests.check(chessMatch.getZobristKey() == chessMatch.computeZobristKey(), "Zobrist key drifted at " + where);
+        Tests.check(evaluator.evaluate(chessMatch) == evaluator.evaluateFromScratch(chessMatch), "evaluation drifted at " + where);
+    }
+}
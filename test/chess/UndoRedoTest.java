@@ -0,0 +1,81 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import testing.Tests;
+
+//Plays random games through both peformChessMove and playMove, undoes them back to the start and redoes them
+//to the end, checking every position on the way. Also covers an under-promotion chosen after the move.
+public class UndoRedoTest {
+    public static void main(String[] args){
+        randomGames(300);
+        underPromotion();
+        redoDroppedByNewMove();
+        Tests.passed(UndoRedoTest.class, "");
+    }
+
+    private static void randomGames(int games){
+        Random random = new Random(23);
+        int[] moves = new int[256];
+        for (int game = 0; game < games; game++) {
+            ChessMatch chessMatch = new ChessMatch((game % 2 == 0) ? "N" : "Y", game);
+            List<String> fens = new ArrayList<>();
+            List<Long> keys = new ArrayList<>();
+            while(!chessMatch.getCheckmate() && chessMatch.getTurn() < 200){
+                int count = chessMatch.legalMoves(moves);
+                if(count == 0){
+                    break;
+                }
+                fens.add(chessMatch.toFen());
+                keys.add(chessMatch.getZobristKey());
+                int move = moves[random.nextInt(count)];
+                if(random.nextBoolean()){
+                    chessMatch.peformChessMove(ChessPosition.fromSquare(Move.from(move)), ChessPosition.fromSquare(Move.to(move)));
+                }else{
+                    chessMatch.playMove(move);
+                }
+            }
+            String last = chessMatch.toFen();
+            Tests.check(chessMatch.getUndoCount() == fens.size(), "one undo record per move");
+            for (int i = fens.size() - 1; i >= 0; i--) {
+                chessMatch.undo();
+                Tests.check(chessMatch.toFen().equals(fens.get(i)), "undo gave " + chessMatch.toFen() + " instead of " + fens.get(i));
+                Tests.check(chessMatch.getZobristKey() == keys.get(i), "undo left a wrong key at " + fens.get(i));
+            }
+            Tests.check(chessMatch.getRedoCount() == fens.size(), "every undone move can be redone");
+            for (int i = 0; i < fens.size(); i++) {
+                chessMatch.redo();
+            }
+            Tests.check(chessMatch.toFen().equals(last), "redo gave " + chessMatch.toFen() + " instead of " + last);
+            Tests.check(chessMatch.getZobristKey() == chessMatch.computeZobristKey(), "redo left a wrong key at " + last);
+        }
+    }
+
+    private static void underPromotion(){
+        ChessMatch chessMatch = ChessMatch.fromFen("8/4P3/8/8/8/8/k7/4K3 w - - 0 1");
+        chessMatch.peformChessMove(new ChessPosition('e', 7), new ChessPosition('e', 8));
+        chessMatch.replacePromotedPiece("N");
+        String promoted = chessMatch.toFen();
+        chessMatch.undo();
+        Tests.check(chessMatch.toFen().equals("8/4P3/8/8/8/8/k7/4K3 w - - 0 1"), "promotion not undone: " + chessMatch.toFen());
+        chessMatch.redo();
+        Tests.check(chessMatch.toFen().equals(promoted), "redo did not bring back the knight: " + chessMatch.toFen());
+    }
+
+    private static void redoDroppedByNewMove(){
+        ChessMatch chessMatch = new ChessMatch("N");
+        chessMatch.playMove(Move.fromString("e2e4"));
+        chessMatch.undo();
+        Tests.check(chessMatch.getRedoCount() == 1, "undone move kept for redo");
+        chessMatch.playMove(Move.fromString("d2d4"));
+        Tests.check(chessMatch.getRedoCount() == 0, "a new move drops the redo stack");
+        try{
+            chessMatch.redo();
+            throw new AssertionError("redo with nothing to redo");
+        }catch(IllegalStateException e){
+            //Expected
+        }
+    }
+}
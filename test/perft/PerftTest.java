@@ -0,0 +1,49 @@
+package perft;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import chess.ChessMatch;
+import testing.Tests;
+
+//Leaf counts of the usual perft positions (chessprogramming.org), a regression check for the move generator:
+//castling, en passant, promotions, pins and checks all show up as a wrong count. For Chess960 start positions
+//it checks that the parallel count and the divide output add up to the serial count.
+public class PerftTest {
+    private static final Object[][] POSITIONS = {
+        {"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", 4, 197281L},
+        {"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", 3, 97862L},
+        {"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", 5, 674624L},
+        {"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", 4, 422333L},
+        {"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", 3, 62379L},
+        {"r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", 3, 89890L},
+    };
+
+    public static void main(String[] args){
+        Perft perft = new Perft();
+        for (Object[] position : POSITIONS) {
+            String fen = (String)position[0];
+            int depth = (Integer)position[1];
+            long expected = (Long)position[2];
+            long nodes = perft.count(ChessMatch.fromFen(fen), depth);
+            Tests.check(nodes == expected, "perft " + depth + " of " + fen + ": " + nodes + " instead of " + expected);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try{
+            for (long seed = 0; seed < 8; seed++) {
+                long nodes = perft.count(new ChessMatch("Y", seed), 3);
+                Tests.check(Perft.count(new ChessMatch("Y", seed), 3, pool) == nodes, "parallel count differs for seed " + seed);
+                long sum = 0;
+                List<Perft.Division> divisions = Perft.divide(new ChessMatch("Y", seed), 3, pool);
+                for (Perft.Division division : divisions) {
+                    sum += division.getNodes();
+                }
+                Tests.check(sum == nodes, "divide adds up to " + sum + " instead of " + nodes + " for seed " + seed);
+            }
+        }finally{
+            pool.shutdown();
+        }
+        Tests.passed(PerftTest.class, POSITIONS.length + " positions");
+    }
+}
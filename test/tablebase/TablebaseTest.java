@@ -0,0 +1,190 @@
+package tablebase;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Move;
+import testing.Tests;
+
+//Generates KQK, KRK and KPK (with the tables they depend on) into a temporary directory and checks them:
+//the known longest mates, the same value for mirrored and colour-swapped positions, and that every probed value
+//follows from the values of the positions one move later.
+//Takes an optional count: tablebase.TablebaseTest [positions <n>]
+public class TablebaseTest {
+    private static final String[] TABLES = {"KQK", "KRK", "KPK"};
+
+    public static void main(String[] args) throws IOException{
+        int positions = (args.length == 2 && args[0].equals("positions")) ? Integer.parseInt(args[1]) : 20000;
+        Path directory = Files.createTempDirectory("tablebase-test");
+        try{
+            List<String> statistics = new ArrayList<>();
+            try(TablebaseGenerator generator = new TablebaseGenerator(directory, 1)){
+                generator.setListener(statistics::add);
+                for (String table : TABLES) {
+                    generator.generate(table);
+                }
+            }
+            checkLongest(statistics, "KQK", 20);
+            checkLongest(statistics, "KRK", 32);
+
+            Tablebase tablebase = new Tablebase(directory);
+            Random random = new Random(20);
+            int[] moves = new int[256];
+            int checked = 0;
+            for (int i = 0; i < positions; i++) {
+                String table = TABLES[random.nextInt(TABLES.length)];
+                char[] board = randomBoard(table, random);
+                boolean white = random.nextBoolean();
+                ChessMatch chessMatch = load(board, white);
+                if(chessMatch == null){
+                    continue;
+                }
+                int value = tablebase.probe(chessMatch);
+                Tests.check(value != Tablebase.NOT_FOUND, "no value for " + chessMatch.toFen());
+                checkSymmetry(tablebase, board, white, value, !table.contains("P"));
+                checkConsistency(tablebase, chessMatch, value, moves);
+                checked++;
+            }
+            Tests.passed(TablebaseTest.class, checked + " positions");
+        }finally{
+            try(var files = Files.list(directory)){
+                for (Path file : (Iterable<Path>)files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    private static void checkLongest(List<String> statistics, String table, int plies){
+        for (String line : statistics) {
+            if(line.startsWith(table + ":")){
+                Tests.check(line.contains("longest mate " + plies + " plies"), "expected a longest mate of " + plies + " plies: " + line);
+                return;
+            }
+        }
+        throw new AssertionError("no statistics for " + table);
+    }
+
+    //Kings and the white piece on distinct random squares, pawns off the first and last rank
+    private static char[] randomBoard(String table, Random random){
+        char[] board = new char[64];
+        String pieces = "Kk" + table.charAt(1);
+        for (int i = 0; i < pieces.length(); i++) {
+            int square;
+            do{
+                square = random.nextInt(64);
+            }while(board[square] != 0 || (pieces.charAt(i) == 'P' && (square < 8 || square >= 56)));
+            board[square] = pieces.charAt(i);
+        }
+        return board;
+    }
+
+    //null for positions the FEN loader refuses, such as the side not to move being in check
+    private static ChessMatch load(char[] board, boolean white){
+        try{
+            return ChessMatch.fromFen(fen(board, white));
+        }catch(ChessException e){
+            return null;
+        }
+    }
+
+    private static String fen(char[] board, boolean white){
+        StringBuilder sb = new StringBuilder();
+        for (int row = 0; row < 8; row++) {
+            int empty = 0;
+            for (int column = 0; column < 8; column++) {
+                char piece = board[row * 8 + column];
+                if(piece == 0){
+                    empty++;
+                    continue;
+                }
+                if(empty > 0){
+                    sb.append(empty);
+                    empty = 0;
+                }
+                sb.append(piece);
+            }
+            if(empty > 0){
+                sb.append(empty);
+            }
+            if(row < 7){
+                sb.append('/');
+            }
+        }
+        return sb.append(white ? " w - - 0 1" : " b - - 0 1").toString();
+    }
+
+    private static void checkSymmetry(Tablebase tablebase, char[] board, boolean white, int value, boolean pawnless){
+        char[] files = new char[64];
+        char[] colours = new char[64];
+        char[] ranks = new char[64];
+        char[] diagonal = new char[64];
+        for (int square = 0; square < 64; square++) {
+            char piece = board[square];
+            files[square ^ 7] = piece;
+            colours[square ^ 56] = Character.isUpperCase(piece) ? Character.toLowerCase(piece) : Character.toUpperCase(piece);
+            ranks[square ^ 56] = piece;
+            diagonal[(square % 8) * 8 + square / 8] = piece;
+        }
+        checkSame(tablebase, files, white, value, "file mirror");
+        checkSame(tablebase, colours, !white, value, "colour swap");
+        if(pawnless){
+            checkSame(tablebase, ranks, white, value, "rank mirror");
+            checkSame(tablebase, diagonal, white, value, "diagonal mirror");
+        }
+    }
+
+    private static void checkSame(Tablebase tablebase, char[] board, boolean white, int value, String transformation){
+        ChessMatch chessMatch = ChessMatch.fromFen(fen(board, white));
+        int other = tablebase.probe(chessMatch);
+        Tests.check(other == value, transformation + " of a position with value " + value + " has value " + other + ": " + chessMatch.toFen());
+    }
+
+    //Won in d: some move leads to a loss in d - 1 and none to a faster one. Lost in d: every move leads to a win,
+    //the slowest in d - 1. Drawn: no move leads to a loss and some move keeps the draw (or there is none at all).
+    private static void checkConsistency(Tablebase tablebase, ChessMatch chessMatch, int value, int[] moves){
+        String fen = chessMatch.toFen();
+        int count = chessMatch.legalMoves(moves);
+        int expectedWdl;
+        int expectedDistance = 0;
+        if(count == 0){
+            expectedWdl = chessMatch.getCheck() ? Tablebase.LOSS : Tablebase.DRAW;
+        }else{
+            int fastestWin = Integer.MAX_VALUE;
+            int slowestLoss = -1;
+            boolean draw = false;
+            for (int i = 0; i < count; i++) {
+                chessMatch.playMove(moves[i]);
+                int child = tablebase.probe(chessMatch);
+                chessMatch.unplayMove();
+                Tests.check(child != Tablebase.NOT_FOUND, "no value after " + Move.toString(moves[i]) + " in " + fen);
+                int wdl = Tablebase.wdl(child);
+                if(wdl == Tablebase.LOSS){
+                    fastestWin = Math.min(fastestWin, Tablebase.distance(child) + 1);
+                }else if(wdl == Tablebase.DRAW){
+                    draw = true;
+                }else{
+                    slowestLoss = Math.max(slowestLoss, Tablebase.distance(child) + 1);
+                }
+            }
+            if(fastestWin != Integer.MAX_VALUE){
+                expectedWdl = Tablebase.WIN;
+                expectedDistance = fastestWin;
+            }else if(draw){
+                expectedWdl = Tablebase.DRAW;
+            }else{
+                expectedWdl = Tablebase.LOSS;
+                expectedDistance = slowestLoss;
+            }
+        }
+        Tests.check(Tablebase.wdl(value) == expectedWdl && Tablebase.distance(value) == expectedDistance,
+            "value " + Tablebase.wdl(value) + "/" + Tablebase.distance(value) + " instead of " + expectedWdl + "/" + expectedDistance + " for " + fen);
+    }
+}
@@ -0,0 +1,31 @@
+package testing;
+
+import java.lang.reflect.InvocationTargetException;
+
+//Shared by the test programs under test: each one is a plain main that throws an AssertionError at the first
+//failed check and reports itself with passed() once everything held.
+public final class Tests {
+    private Tests(){
+    }
+
+    public static void check(boolean condition, String message){
+        if(!condition){
+            throw new AssertionError(message);
+        }
+    }
+
+    public static void passed(Class<?> test, String details){
+        System.out.println(test.getSimpleName() + ": ok" + (details.isEmpty() ? "" : " (" + details + ")"));
+    }
+
+    //Runs the named test programs one after the other and stops at the first that fails, this is how the build runs them
+    public static void main(String[] args) throws ReflectiveOperationException{
+        for (String name : args) {
+            try{
+                Class.forName(name).getMethod("main", String[].class).invoke(null, (Object)new String[0]);
+            }catch(InvocationTargetException e){
+                throw new AssertionError(name + " failed", e.getCause());
+            }
+        }
+    }
+}